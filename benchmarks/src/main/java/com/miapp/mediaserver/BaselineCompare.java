@@ -0,0 +1,93 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compara un resultado JMH (-rf json) con la línea base y termina con código 1 si algo empeora más del
+// umbral (10 % por defecto) y además fuera de los márgenes de error de ambas mediciones, o si falta en la
+// ejecución actual algún benchmark de la línea base (una suite renombrada o borrada no debe pasar en silencio).
+//   java -cp benchmarks.jar com.miapp.mediaserver.BaselineCompare baseline.json current.json [umbral]
+public final class BaselineCompare {
+
+    private BaselineCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: BaselineCompare <baseline.json> <actual.json> [umbral, p. ej. 0.10]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        Map<String, Result> baseline = read(Path.of(args[0]));
+        Map<String, Result> current = read(Path.of(args[1]));
+        int regressions = 0;
+        int missing = 0;
+        for (Map.Entry<String, Result> entry : baseline.entrySet()) {
+            Result before = entry.getValue();
+            Result after = current.get(entry.getKey());
+            if (after == null) {
+                System.out.printf(Locale.ROOT, "FALTA     %s%n", entry.getKey());
+                missing++;
+                continue;
+            }
+            // En modo throughput más es mejor; en los de tiempo, menos
+            boolean higherIsBetter = before.mode().equals("thrpt");
+            double change = (after.score() - before.score()) / before.score();
+            double worse = higherIsBetter ? -change : change;
+            boolean outsideNoise = Math.abs(after.score() - before.score()) > before.error() + after.error();
+            String verdict = worse > threshold && outsideNoise ? "PEOR" : worse < -threshold && outsideNoise ? "MEJOR" : "IGUAL";
+            if (verdict.equals("PEOR")) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%-9s %-70s %12.3f -> %12.3f %s (%+.1f %%)%n", verdict, entry.getKey(),
+                    before.score(), after.score(), after.unit(), change * 100);
+        }
+        for (String name : current.keySet()) {
+            if (!baseline.containsKey(name)) {
+                System.out.printf(Locale.ROOT, "NUEVO     %s%n", name);
+            }
+        }
+        if (regressions > 0) {
+            System.out.printf(Locale.ROOT, "%d benchmarks empeoran más de un %.0f %%%n", regressions, threshold * 100);
+        }
+        if (missing > 0) {
+            System.out.printf(Locale.ROOT, "%d benchmarks de la línea base no aparecen en la ejecución actual%n", missing);
+        }
+        if (regressions > 0 || missing > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Clave: nombre del benchmark más sus parámetros en orden alfabético
+    private static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            if (params.isObject()) {
+                Map<String, String> sorted = new TreeMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    sorted.put(param.getKey(), param.getValue().asText());
+                }
+                sorted.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            }
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            results.put(key.toString(), new Result(run.path("mode").asText(), metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    private record Result(String mode, double score, double error, String unit) {
+    }
+}
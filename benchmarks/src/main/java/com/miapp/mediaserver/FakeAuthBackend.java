@@ -0,0 +1,256 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sustituto en proceso del backend /api/auth para pruebas de carga: mismas rutas y formatos que usa
+// MediaServerApiClient, con latencia, tasa de errores y tamaño de la flota configurables. Se sirve con el
+// propio MediaHttpServer. Usuario de prueba: demo / demo@example.com, contraseña demo.
+//   java -cp benchmarks.jar com.miapp.mediaserver.FakeAuthBackend --port=8080 --fleet=5000
+// y la aplicación con -Dapi.baseUrl=http://localhost:8080/api/auth
+public class FakeAuthBackend implements RouteHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FakeAuthBackend.class);
+    public static final String PREFIX = "/api/auth/";
+
+    private final Options options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, String> passwords = new ConcurrentHashMap<>();
+    private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Map<String, Object>> servers = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong version = new AtomicLong();
+    private volatile CachedList cachedList;
+    private MediaHttpServer server;
+
+    public record Options(int port, long latencyMillis, long jitterMillis, double errorRate, int fleetSize) {
+    }
+
+    private record CachedList(long version, String etag, byte[] body) {
+    }
+
+    public FakeAuthBackend(Options options) {
+        this.options = options;
+        passwords.put("demo", "demo");
+        passwords.put("demo@example.com", "demo");
+        for (int i = 0; i < options.fleetSize(); i++) {
+            addServer("servidor-" + i, "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF),
+                    8081 + i % 100);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> flags = LoadDriver.parseFlags(args);
+        FakeAuthBackend backend = new FakeAuthBackend(optionsFrom(flags, Integer.parseInt(flags.getOrDefault("port", "8080"))));
+        backend.start();
+        logger.info("Backend simulado en {}", backend.getBaseUrl());
+        Thread.currentThread().join();
+    }
+
+    static Options optionsFrom(Map<String, String> flags, int port) {
+        return new Options(port,
+                Long.parseLong(flags.getOrDefault("latency", "0")),
+                Long.parseLong(flags.getOrDefault("jitter", "0")),
+                Double.parseDouble(flags.getOrDefault("errors", "0")),
+                Integer.parseInt(flags.getOrDefault("fleet", "5000")));
+    }
+
+    public void start() throws IOException {
+        server = new MediaHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), options.port()));
+        server.route(PREFIX, this);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getPort() + PREFIX.substring(0, PREFIX.length() - 1);
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        simulateLatency();
+        if (options.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.errorRate()) {
+            throw new HttpException(500, "Error simulado");
+        }
+        String[] path = request.getPath().substring(PREFIX.length()).split("/");
+        String method = request.getMethod();
+        switch (path[0]) {
+            case "login" -> login(request, response);
+            case "register" -> register(request, response);
+            case "refresh" -> refresh(request, response);
+            case "logout" -> {
+                // Sin cabecera no hay nada que invalidar; remove(null) falla en un conjunto concurrente
+                String token = bearer(request);
+                if (token != null) {
+                    tokens.remove(token);
+                }
+                response.send(200, new byte[0]);
+            }
+            case "register-server" -> {
+                requireToken(request);
+                JsonNode body = mapper.readTree(request.getBody());
+                Map<String, Object> created = addServer(body.path("serverName").asText(),
+                        body.path("ipAddress").asText(), body.path("port").asInt());
+                response.sendJson(200, mapper.writeValueAsBytes(created));
+            }
+            case "servers" -> {
+                requireToken(request);
+                if (path.length == 1) {
+                    listServers(request, response);
+                } else if (path.length == 2 && "PUT".equals(method)) {
+                    updateServer(parseId(path[1]), mapper.readTree(request.getBody()), response);
+                } else if (path.length == 2 && "DELETE".equals(method)) {
+                    if (servers.remove(parseId(path[1])) == null) {
+                        throw new HttpException(404, "Servidor no encontrado");
+                    }
+                    version.incrementAndGet();
+                    response.send(200, new byte[0]);
+                } else if (path.length == 3 && path[2].equals("heartbeat")) {
+                    response.send(200, new byte[0]);
+                } else {
+                    // Sin /servers/events: el cliente vuelve al sondeo periódico
+                    throw new HttpException(404, "No encontrado");
+                }
+            }
+            default -> throw new HttpException(404, "No encontrado");
+        }
+    }
+
+    private void login(MediaRequest request, MediaResponse response) throws IOException {
+        JsonNode body = mapper.readTree(request.getBody());
+        String user = body.hasNonNull("email") ? body.get("email").asText() : body.path("username").asText();
+        String password = passwords.get(user);
+        if (password == null || !password.equals(body.path("password").asText())) {
+            throw new HttpException(401, "Credenciales incorrectas");
+        }
+        String token = UUID.randomUUID().toString();
+        tokens.add(token);
+        response.sendJson(200, mapper.writeValueAsBytes(Map.of("token", token)));
+    }
+
+    // Cambia el token vigente por uno nuevo; el anterior deja de valer, como en una rotación real
+    private void refresh(MediaRequest request, MediaResponse response) throws IOException {
+        String current = bearer(request);
+        if (current == null || !tokens.remove(current)) {
+            throw new HttpException(401, "Token no válido");
+        }
+        String token = UUID.randomUUID().toString();
+        tokens.add(token);
+        response.sendJson(200, mapper.writeValueAsBytes(Map.of("token", token)));
+    }
+
+    private void register(MediaRequest request, MediaResponse response) throws IOException {
+        JsonNode body = mapper.readTree(request.getBody());
+        JsonNode user = body.path("user");
+        String password = user.path("password").asText();
+        if (!password.equals(body.path("confirmPassword").asText())) {
+            throw new HttpException(400, "Las contraseñas no coinciden");
+        }
+        if (passwords.putIfAbsent(user.path("username").asText(), password) != null) {
+            throw new HttpException(409, "El usuario ya existe");
+        }
+        passwords.put(user.path("email").asText(), password);
+        response.send(200, new byte[0]);
+    }
+
+    // La lista serializada se reutiliza hasta el siguiente cambio, como haría una caché del backend real
+    private void listServers(MediaRequest request, MediaResponse response) throws IOException {
+        CachedList list = cachedList;
+        long current = version.get();
+        if (list == null || list.version() != current) {
+            List<Map<String, Object>> snapshot = new ArrayList<>(servers.values());
+            list = new CachedList(current, "\"v" + current + "\"", mapper.writeValueAsBytes(snapshot));
+            cachedList = list;
+        }
+        response.setHeader("ETag", list.etag());
+        if (list.etag().equals(request.header("If-None-Match"))) {
+            response.setStatus(304);
+            response.sendHeaders(-1);
+            return;
+        }
+        response.sendJson(200, list.body());
+    }
+
+    private void updateServer(long id, JsonNode body, MediaResponse response) throws IOException {
+        Map<String, Object> server = servers.get(id);
+        if (server == null) {
+            throw new HttpException(404, "Servidor no encontrado");
+        }
+        Map<String, Object> updated = new LinkedHashMap<>(server);
+        updated.put("name", body.path("serverName").asText());
+        updated.put("ipAddress", body.path("ipAddress").asText());
+        updated.put("port", body.path("port").asInt());
+        servers.put(id, updated);
+        version.incrementAndGet();
+        response.send(200, new byte[0]);
+    }
+
+    private Map<String, Object> addServer(String name, String ipAddress, int port) {
+        long id = nextId.getAndIncrement();
+        Map<String, Object> server = new LinkedHashMap<>();
+        server.put("id", id);
+        server.put("name", name);
+        server.put("ipAddress", ipAddress);
+        server.put("port", port);
+        server.put("streamKey", UUID.randomUUID().toString().replace("-", ""));
+        server.put("status", "OFFLINE");
+        servers.put(id, server);
+        version.incrementAndGet();
+        return server;
+    }
+
+    private void simulateLatency() throws IOException {
+        long delay = options.latencyMillis();
+        if (options.jitterMillis() > 0) {
+            delay += ThreadLocalRandom.current().nextLong(options.jitterMillis() + 1);
+        }
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido", e);
+        }
+    }
+
+    private void requireToken(MediaRequest request) throws HttpException {
+        String token = bearer(request);
+        if (token == null || !tokens.contains(token)) {
+            throw new HttpException(401, "Token no válido");
+        }
+    }
+
+    private static String bearer(MediaRequest request) {
+        String header = request.header("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7) : null;
+    }
+
+    private static long parseId(String id) throws HttpException {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Identificador no válido");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.miapp.mediaserver;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Carga de extremo a extremo contra el backend de autenticación y registro, a través del mismo
+// MediaServerApiClient que usa la aplicación. Sin --baseUrl arranca un FakeAuthBackend en un puerto libre.
+// Bucle abierto: las peticiones salen a ritmo fijo y la latencia se mide desde el instante previsto de
+// salida, así las colas del cliente (OkHttp limita a 5 peticiones por host) también cuentan.
+//   java -cp benchmarks.jar com.miapp.mediaserver.LoadDriver --fleet=5000 --rate=200 --duration=30 \
+//        --latency=5 --jitter=10 --errors=0.01
+public class LoadDriver {
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MAX_IN_FLIGHT = 10_000;
+
+    enum Operation { LOGIN, LIST, FETCH_ETAG, REGISTER, UPDATE, DELETE }
+
+    // Mezcla por defecto: predominan las lecturas de la lista, como en el uso real de la interfaz
+    private static final Operation[] MIX = buildMix(Map.of(
+            Operation.LOGIN, 5, Operation.LIST, 45, Operation.FETCH_ETAG, 30,
+            Operation.REGISTER, 10, Operation.UPDATE, 7, Operation.DELETE, 3));
+
+    private final MediaServerApiClient api;
+    private final String username;
+    private final String password;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedQueue<Long> created = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile String token;
+    private volatile String etag;
+
+    public LoadDriver(MediaServerApiClient api, String username, String password) {
+        this.api = api;
+        this.username = username;
+        this.password = password;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> flags = parseFlags(args);
+        int rate = Integer.parseInt(flags.getOrDefault("rate", "100"));
+        int seconds = Integer.parseInt(flags.getOrDefault("duration", "30"));
+        String baseUrl = flags.get("baseUrl");
+        FakeAuthBackend backend = null;
+        if (baseUrl == null) {
+            backend = new FakeAuthBackend(FakeAuthBackend.optionsFrom(flags, 0));
+            backend.start();
+            baseUrl = backend.getBaseUrl();
+        }
+        try {
+            System.out.printf("Carga contra %s: %d peticiones/s durante %d s%n", baseUrl, rate, seconds);
+            LoadDriver driver = new LoadDriver(new MediaServerApiClient(Runnable::run, baseUrl),
+                    flags.getOrDefault("user", "demo"), flags.getOrDefault("password", "demo"));
+            driver.run(rate, seconds);
+            driver.report(System.out);
+        } finally {
+            if (backend != null) {
+                backend.stop();
+            }
+        }
+        System.exit(0);
+    }
+
+    public void run(int rate, int seconds) throws Exception {
+        token = api.loginWithUsername(username, password).get(10, TimeUnit.SECONDS).getToken();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= MAX_IN_FLIGHT) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            Operation requested = MIX[ThreadLocalRandom.current().nextInt(MIX.length)];
+            // UPDATE y DELETE toman el id en exclusiva; sin ninguno creado se mide como la lectura que es
+            Long id = requested == Operation.UPDATE || requested == Operation.DELETE ? created.poll() : null;
+            Operation operation = id == null && (requested == Operation.UPDATE || requested == Operation.DELETE)
+                    ? Operation.LIST : requested;
+            inFlight.incrementAndGet();
+            issue(operation, id).whenComplete((result, error) -> {
+                recorders.get(operation).record(System.nanoTime() - intended, error != null);
+                inFlight.decrementAndGet();
+            });
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private CompletableFuture<?> issue(Operation operation, Long id) {
+        String current = token;
+        int suffix = ThreadLocalRandom.current().nextInt(1_000_000);
+        return switch (operation) {
+            case LOGIN -> api.loginWithUsername(username, password);
+            case LIST -> api.listServers(current);
+            case FETCH_ETAG -> api.fetchServers(current, etag).thenAccept(snapshot -> etag = snapshot.etag());
+            case REGISTER -> api.registerServer(current, "carga-" + suffix, "127.0.0.1", 9000 + suffix % 1000)
+                    .thenAccept(server -> created.add(server.getId()));
+            // Al terminar el id vuelve a la cola para las siguientes UPDATE o DELETE
+            case UPDATE -> api.updateServer(current, id, "carga-" + suffix, "127.0.0.1", 9000 + suffix % 1000)
+                    .whenComplete((ignored, error) -> created.add(id));
+            case DELETE -> api.deleteServer(current, id);
+        };
+    }
+
+    public void report(PrintStream out) {
+        out.printf("%-12s %8s %7s %10s %10s %10s %10s%n", "operación", "total", "errores", "p50 ms", "p90 ms",
+                "p99 ms", "máx ms");
+        recorders.forEach((operation, recorder) -> {
+            long[] samples = recorder.snapshot();
+            if (samples.length == 0) {
+                return;
+            }
+            Arrays.sort(samples);
+            out.printf("%-12s %8d %7d %10.2f %10.2f %10.2f %10.2f%n", operation, samples.length, recorder.errors(),
+                    millis(percentile(samples, 0.50)), millis(percentile(samples, 0.90)),
+                    millis(percentile(samples, 0.99)), millis(samples[samples.length - 1]));
+        });
+        if (dropped.get() > 0) {
+            out.printf("Descartadas por saturación: %d%n", dropped.get());
+        }
+    }
+
+    static Map<String, String> parseFlags(String[] args) {
+        Map<String, String> flags = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argumento no reconocido: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            flags.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals),
+                    equals < 0 ? "true" : arg.substring(equals + 1));
+        }
+        return flags;
+    }
+
+    private static Operation[] buildMix(Map<Operation, Integer> weights) {
+        List<Operation> mix = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            for (int i = 0; i < weights.getOrDefault(operation, 0); i++) {
+                mix.add(operation);
+            }
+        }
+        return mix.toArray(new Operation[0]);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Recorder {
+        private long[] samples = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void record(long nanos, boolean error) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+            if (error) {
+                errors++;
+            }
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(samples, count);
+        }
+
+        synchronized int errors() {
+            return errors;
+        }
+    }
+}
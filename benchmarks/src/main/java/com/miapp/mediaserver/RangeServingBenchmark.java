@@ -0,0 +1,154 @@
+package com.miapp.mediaserver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Peticiones Range a /media/ contra un fichero local, por una conexión keep-alive como la de un reproductor.
+// Los desplazamientos salen de una semilla fija para que dos ejecuciones pidan exactamente lo mismo.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class RangeServingBenchmark {
+
+    private static final String KEY = "benchmark";
+    private static final long FILE_BYTES = 64L * 1024 * 1024;
+
+    @Param({"65536", "1048576"})
+    public int rangeBytes;
+
+    @Param({"false", "true"})
+    public boolean blockCache;
+
+    private Path libraryDir;
+    private MediaHttpServer server;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        libraryDir = Files.createTempDirectory("range-bench");
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(libraryDir.resolve("bench.mp4"))) {
+            for (long written = 0; written < FILE_BYTES; written += block.length) {
+                out.write(block);
+            }
+        }
+        StreamKeyRegistry.shared().setKeys(List.of(KEY));
+        MediaLibrary library = new MediaLibrary(List.of(libraryDir));
+        BlockCache cache = blockCache ? new BlockCache(128L * 1024 * 1024, 256 * 1024) : null;
+        server = new MediaHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.route(MediaFileHandler.PREFIX, new MediaFileHandler(library, StreamKeyRegistry.shared(),
+                new AdmissionController(1000, 1000, 1000, 2_000, 1), null, new BandwidthShaper(0, 0, 0),
+                cache, null));
+        server.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        server.stop();
+        try (Stream<Path> files = Files.walk(libraryDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private byte[] body;
+        private final Random offsets = new Random(7);
+
+        @Setup(Level.Trial)
+        public void connect(RangeServingBenchmark benchmark) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), benchmark.server.getPort());
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            out = socket.getOutputStream();
+            body = new byte[benchmark.rangeBytes];
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    public int range(Client client) throws IOException {
+        long slots = FILE_BYTES / rangeBytes;
+        long start = (long) client.offsets.nextInt((int) slots) * rangeBytes;
+        String request = "GET " + MediaFileHandler.PREFIX + "bench.mp4?key=" + KEY + " HTTP/1.1\r\n"
+                + "Host: localhost\r\nRange: bytes=" + start + "-" + (start + rangeBytes - 1) + "\r\n\r\n";
+        client.out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+        client.out.flush();
+        int length = readHeaders(client.in);
+        if (length != rangeBytes) {
+            throw new IOException("Longitud inesperada: " + length);
+        }
+        return client.in.readNBytes(client.body, 0, length);
+    }
+
+    // Solo interesa Content-Length; el resto de cabeceras se descarta
+    private static int readHeaders(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int length = -1;
+        int status = 0;
+        while (true) {
+            line.setLength(0);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Conexión cerrada por el servidor");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            if (line.isEmpty()) {
+                break;
+            }
+            String header = line.toString();
+            if (status == 0) {
+                status = Integer.parseInt(header.substring(9, 12));
+            } else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        if (status != 206) {
+            throw new IOException("Estado inesperado: " + status);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,61 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Deserialización de la lista de servidores igual que MediaServerApiClient: un ObjectMapper compartido y
+// el mismo TypeReference, desde los bytes del cuerpo
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class ServerListBenchmark {
+
+    private static final TypeReference<List<ServerResponse>> SERVER_LIST = new TypeReference<>() {};
+
+    @Param({"10", "1000", "100000"})
+    public int servers;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        StringBuilder body = new StringBuilder(servers * 140).append('[');
+        for (int i = 0; i < servers; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"id\":").append(i + 1)
+                    .append(",\"name\":\"servidor-").append(i)
+                    .append("\",\"ipAddress\":\"10.0.").append((i >> 8) & 0xFF).append('.').append(i & 0xFF)
+                    .append("\",\"port\":").append(8081 + (i % 100))
+                    .append(",\"streamKey\":\"").append(Long.toHexString(0x9E3779B97F4A7C15L * (i + 1)))
+                    .append("\",\"status\":\"").append(i % 3 == 0 ? "OFFLINE" : "ONLINE").append("\"}");
+        }
+        json = body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<ServerResponse> deserialize() throws IOException {
+        return mapper.readValue(json, SERVER_LIST);
+    }
+}
@@ -0,0 +1,105 @@
+package com.miapp.mediaserver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Sondeo de vida de N puertos locales, la mitad escuchando y la otra mitad cerrados, con el ServerProber
+// que usa la pantalla de servidores
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class ServerProbeBenchmark {
+
+    @Param({"16", "256"})
+    public int ports;
+
+    private final List<ServerSocketChannel> listeners = new ArrayList<>();
+    private final ServerProber prober = new ServerProber(1000);
+    private List<InetSocketAddress> addresses;
+    private Selector acceptor;
+    private Thread drain;
+
+    @Setup
+    public void setUp() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        addresses = new ArrayList<>(ports);
+        List<ServerSocketChannel> closed = new ArrayList<>();
+        for (int i = 0; i < ports; i++) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(loopback, 0), 1024);
+            addresses.add(InetSocketAddress.createUnresolved(loopback.getHostAddress(),
+                    ((InetSocketAddress) channel.getLocalAddress()).getPort()));
+            (i % 2 == 0 ? listeners : closed).add(channel);
+        }
+        // Un puerto que acaba de cerrarse responde con RST, como un servidor caído en la misma máquina
+        for (ServerSocketChannel channel : closed) {
+            channel.close();
+        }
+        // Se aceptan y cierran las conexiones del sondeo para que la cola de los puertos abiertos no se llene
+        acceptor = Selector.open();
+        for (ServerSocketChannel channel : listeners) {
+            channel.configureBlocking(false);
+            channel.register(acceptor, SelectionKey.OP_ACCEPT);
+        }
+        drain = new Thread(this::drainConnections, "probe-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    private void drainConnections() {
+        try {
+            while (acceptor.isOpen()) {
+                acceptor.select();
+                for (SelectionKey key : acceptor.selectedKeys()) {
+                    SocketChannel accepted = ((ServerSocketChannel) key.channel()).accept();
+                    if (accepted != null) {
+                        accepted.close();
+                    }
+                }
+                acceptor.selectedKeys().clear();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Fin del benchmark
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        acceptor.close();
+        drain.join();
+        for (ServerSocketChannel channel : listeners) {
+            channel.close();
+        }
+        listeners.clear();
+    }
+
+    @Benchmark
+    public boolean[] probe() {
+        return prober.probe(addresses);
+    }
+}
@@ -0,0 +1,110 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Limita las emisiones simultáneas, en total y por clave; el resto espera un tiempo acotado o recibe 503
+public class AdmissionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final int maxStreams;
+    private final int maxPerKey;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final int retryAfterSeconds;
+    private final Semaphore global;
+    private final Map<String, Semaphore> perKey = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public AdmissionController(int maxStreams, int maxPerKey, int maxQueued, long queueTimeoutMillis,
+                               int retryAfterSeconds) {
+        this.maxStreams = maxStreams;
+        this.maxPerKey = maxPerKey;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.global = new Semaphore(maxStreams, true);
+    }
+
+    public static AdmissionController fromConfig(ServerConfig config) {
+        return new AdmissionController(
+                config.getInt("media.maxStreams", 1000),
+                config.getInt("media.maxStreamsPerKey", 50),
+                config.getInt("media.maxQueued", 1000),
+                config.getLong("media.queueTimeoutMillis", 2_000),
+                config.getInt("media.retryAfterSeconds", 5));
+    }
+
+    // Devuelve el permiso que hay que cerrar al terminar la emisión
+    public Permit admit(String key, MediaResponse response) throws HttpException {
+        Semaphore keyLimit = perKey.computeIfAbsent(key, ignored -> new Semaphore(maxPerKey, true));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        if (!acquire(keyLimit, deadline)) {
+            throw rejected(response, "Demasiadas emisiones con esta clave");
+        }
+        if (!acquire(global, deadline)) {
+            keyLimit.release();
+            throw rejected(response, "Servidor saturado");
+        }
+        return new Permit(keyLimit);
+    }
+
+    public int getActiveStreams() {
+        return maxStreams - global.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    private boolean acquire(Semaphore semaphore, long deadline) throws HttpException {
+        if (semaphore.tryAcquire()) {
+            return true;
+        }
+        // Cola acotada: con la cola llena se rechaza sin esperar
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return semaphore.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpException(503, "Servidor deteniéndose");
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private HttpException rejected(MediaResponse response, String reason) {
+        logger.debug("Emisión rechazada: {}", reason);
+        response.setHeader("Retry-After", Integer.toString(retryAfterSeconds));
+        response.setKeepAlive(false);
+        return new HttpException(503, reason);
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final Semaphore keyLimit;
+        private boolean released;
+
+        private Permit(Semaphore keyLimit) {
+            this.keyLimit = keyLimit;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                global.release();
+                keyLimit.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.miapp.mediaserver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Una llamada al backend, de principio a fin; las fases que no ocurrieron (conexión reutilizada) valen -1
+@Name("com.miapp.mediaserver.ApiCall")
+@Label("Llamada al backend")
+@Category({"MediaServer", "API"})
+@StackTrace(false)
+public class ApiCallEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Método")
+    String method;
+
+    @Label("Código de respuesta")
+    int status;
+
+    @Label("DNS")
+    @Timespan
+    long dnsNanos;
+
+    @Label("Conexión")
+    @Timespan
+    long connectNanos;
+
+    @Label("Hasta el primer byte")
+    @Timespan
+    long ttfbNanos;
+}
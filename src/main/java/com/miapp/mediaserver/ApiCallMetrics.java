@@ -0,0 +1,142 @@
+package com.miapp.mediaserver;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+// Fases de cada llamada al backend (DNS, conexión, primer byte y total) por endpoint y método.
+// Los identificadores numéricos de la ruta se agrupan como {id} para no crear una serie por servidor.
+public class ApiCallMetrics implements EventListener.Factory {
+
+    private final MetricsRegistry metrics;
+
+    public ApiCallMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        Request request = call.request();
+        // La suscripción SSE queda abierta indefinidamente: su "latencia" no dice nada
+        if ("text/event-stream".equals(request.header("Accept"))) {
+            return EventListener.NONE;
+        }
+        return new CallListener(endpoint(request.url()), request.method());
+    }
+
+    static String endpoint(HttpUrl url) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : url.pathSegments()) {
+            path.append('/').append(!segment.isEmpty() && segment.chars().allMatch(Character::isDigit)
+                    ? "{id}" : segment);
+        }
+        return path.toString();
+    }
+
+    private void record(String endpoint, String method, String phase, long nanos) {
+        metrics.histogram("mediaserver_api_request_seconds", "Latencia de las llamadas al backend por fase",
+                "endpoint", endpoint, "method", method, "phase", phase).recordNanos(nanos);
+    }
+
+    private final class CallListener extends EventListener {
+        private final String endpoint;
+        private final String method;
+        private final ApiCallEvent event = metrics.isJfrEnabled() ? new ApiCallEvent() : null;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long dnsNanos = -1;
+        private long connectNanos = -1;
+        private long ttfbNanos = -1;
+        private int status;
+
+        CallListener(String endpoint, String method) {
+            this.endpoint = endpoint;
+            this.method = method;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+            if (event != null) {
+                event.begin();
+            }
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+            dnsNanos = System.nanoTime() - dnsStart;
+            record(endpoint, method, "dns", dnsNanos);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            connectNanos = System.nanoTime() - connectStart;
+            record(endpoint, method, "connect", connectNanos);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol,
+                                  IOException error) {
+            connectNanos = System.nanoTime() - connectStart;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            ttfbNanos = System.nanoTime() - callStart;
+            record(endpoint, method, "ttfb", ttfbNanos);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            status = response.code();
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish(Integer.toString(status));
+        }
+
+        @Override
+        public void callFailed(Call call, IOException error) {
+            finish("error");
+        }
+
+        private void finish(String outcome) {
+            record(endpoint, method, "total", System.nanoTime() - callStart);
+            metrics.counter("mediaserver_api_requests_total", "Llamadas al backend por resultado",
+                    "endpoint", endpoint, "method", method, "status", outcome).increment();
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.endpoint = endpoint;
+                    event.method = method;
+                    event.status = "error".equals(outcome) ? -1 : status;
+                    event.dnsNanos = dnsNanos;
+                    event.connectNanos = connectNanos;
+                    event.ttfbNanos = ttfbNanos;
+                    event.commit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+
+public class ApiException extends IOException {
+    private final int code;
+    private final String body;
+
+    public ApiException(int code, String body) {
+        super("Código de respuesta " + code + ": " + body);
+        this.code = code;
+        this.body = body;
+    }
+
+    public int getCode() { return code; }
+    public String getBody() { return body; }
+}
@@ -0,0 +1,266 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Sesión contra el backend:
+// - login en una sola petición: el identificador se clasifica aquí como email o nombre de usuario;
+// - validación con HEAD /servers (sin cuerpo), recordada durante un TTL y compartida entre llamadas simultáneas;
+// - si el token es un JWT, su "exp" descarta sin red los caducados, acota la caché y programa la renovación.
+// La firma del JWT no se comprueba aquí, así que "exp" nunca basta para dar un token por bueno.
+public class AuthSession {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthSession.class);
+    public static final String TOKEN_FILE = "token.txt";
+    private static final long CLOCK_SKEW_MILLIS = 30_000;
+    private static final long RETRY_MILLIS = 30_000;
+    private static final int MAX_CACHED_TOKENS = 1_000;
+
+    private static AuthSession shared;
+
+    private final MediaServerApiClient api;
+    private final long ttlMillis;
+    private final long refreshAheadMillis;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Long> validUntil = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_CACHED_TOKENS;
+        }
+    };
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> tokenListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "auth-session");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private String token;
+    private ScheduledFuture<?> refreshTask;
+    private volatile boolean refreshSupported = true;
+
+    public AuthSession(MediaServerApiClient api, long ttlMillis, long refreshAheadMillis) {
+        this.api = api;
+        this.ttlMillis = ttlMillis;
+        this.refreshAheadMillis = refreshAheadMillis;
+    }
+
+    public static synchronized AuthSession shared() {
+        if (shared == null) {
+            shared = fromConfig(ServerConfig.shared(), MediaServerApiClient.shared());
+        }
+        return shared;
+    }
+
+    public static AuthSession fromConfig(ServerConfig config, MediaServerApiClient api) {
+        return new AuthSession(api,
+                config.getLong("auth.tokenCacheSeconds", config.getLong("uploads.tokenCacheSeconds", 60)) * 1000,
+                config.getLong("auth.refreshAheadSeconds", 300) * 1000);
+    }
+
+    // Un identificador con @ solo puede ser un email: una petición en lugar de probar las dos formas seguidas
+    public CompletableFuture<UserResponse> login(String identifier, String password) {
+        CompletableFuture<UserResponse> login = identifier.indexOf('@') >= 0
+                ? api.loginWithEmail(identifier, password)
+                : api.loginWithUsername(identifier, password);
+        return login.thenApply(user -> {
+            remember(user.getToken());
+            saveToken(user.getToken());
+            start(user.getToken());
+            return user;
+        });
+    }
+
+    // true si el backend acepta el token; falla si no se pudo preguntar (sin red, error 5xx)
+    public CompletableFuture<Boolean> validate(String token) {
+        long now = System.currentTimeMillis();
+        long expiresAt = expiresAt(token);
+        if (expiresAt > 0 && expiresAt <= now + CLOCK_SKEW_MILLIS) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String key = fingerprint(token);
+        synchronized (validUntil) {
+            Long until = validUntil.get(key);
+            if (until != null && until > now) {
+                return CompletableFuture.completedFuture(true);
+            }
+        }
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return existing;
+        }
+        api.validateToken(token).whenComplete((valid, error) -> {
+            inFlight.remove(key, pending);
+            if (error != null) {
+                pending.completeExceptionally(error);
+                return;
+            }
+            if (valid) {
+                remember(token);
+            } else {
+                forget(token);
+            }
+            pending.complete(valid);
+        });
+        return pending;
+    }
+
+    public synchronized String token() {
+        return token;
+    }
+
+    // Los oyentes reciben el token nuevo tras cada renovación, en el hilo de resultados del cliente
+    public void addTokenListener(Consumer<String> listener) {
+        tokenListeners.add(listener);
+    }
+
+    public synchronized void start(String token) {
+        if (token.equals(this.token) && refreshTask != null) {
+            return;
+        }
+        cancelRefresh();
+        this.token = token;
+        scheduleRefresh(token);
+    }
+
+    public synchronized void end() {
+        cancelRefresh();
+        if (token != null) {
+            forget(token);
+            token = null;
+        }
+    }
+
+    public static void saveToken(String token) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(TOKEN_FILE))) {
+            writer.write(token);
+            logger.info("Token guardado en {}", TOKEN_FILE);
+        } catch (IOException e) {
+            logger.error("Error al guardar el token", e);
+        }
+    }
+
+    // Renueva con margen antes de "exp": con vidas cortas, a mitad de lo que le queda
+    private void scheduleRefresh(String token) {
+        long expiresAt = expiresAt(token);
+        if (expiresAt <= 0 || !refreshSupported) {
+            return;
+        }
+        long remaining = expiresAt - System.currentTimeMillis();
+        long delay = Math.max(0, remaining - Math.min(refreshAheadMillis, remaining / 2));
+        refreshTask = scheduler.schedule(() -> refresh(token), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh(String current) {
+        api.refreshToken(current).whenComplete((user, error) -> {
+            synchronized (this) {
+                if (!current.equals(token)) {
+                    return;
+                }
+                if (error == null) {
+                    logger.info("Token renovado antes de caducar");
+                    forget(current);
+                    remember(user.getToken());
+                    token = user.getToken();
+                    saveToken(token);
+                    scheduleRefresh(token);
+                } else if (MediaServerApiClient.unwrap(error) instanceof ApiException apiError
+                        && (apiError.getCode() == 404 || apiError.getCode() == 405)) {
+                    logger.info("El backend no admite renovar el token, se desactiva la renovación");
+                    refreshSupported = false;
+                    return;
+                } else {
+                    logger.warn("No se pudo renovar el token: {}", MediaServerApiClient.unwrap(error).getMessage());
+                    if (expiresAt(current) > System.currentTimeMillis() + RETRY_MILLIS) {
+                        refreshTask = scheduler.schedule(() -> refresh(current), RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                    return;
+                }
+            }
+            tokenListeners.forEach(listener -> listener.accept(user.getToken()));
+        });
+    }
+
+    private void cancelRefresh() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+    }
+
+    private void remember(String token) {
+        long until = System.currentTimeMillis() + ttlMillis;
+        long expiresAt = expiresAt(token);
+        if (expiresAt > 0) {
+            until = Math.min(until, expiresAt - CLOCK_SKEW_MILLIS);
+        }
+        synchronized (validUntil) {
+            validUntil.put(fingerprint(token), until);
+        }
+    }
+
+    private void forget(String token) {
+        synchronized (validUntil) {
+            validUntil.remove(fingerprint(token));
+        }
+    }
+
+    // "exp" del JWT en milisegundos, o -1 si el token es opaco o no lo trae
+    long expiresAt(String token) {
+        JsonNode exp = claim(token, "exp");
+        return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : -1;
+    }
+
+    // Quién presenta el token: el "sub" del JWT, que se mantiene al renovarlo, o el hash de un token opaco
+    String subject(String token) {
+        JsonNode sub = claim(token, "sub");
+        return sub != null && sub.isValueNode() && !sub.asText().isEmpty() ? "sub:" + sub.asText() : fingerprint(token);
+    }
+
+    private JsonNode claim(String token, String name) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            JsonNode claims = mapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            return claims == null ? null : claims.get(name);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // En memoria solo se guarda el hash del token
+    static String fingerprint(String token) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /admin/bandwidth: tasas vigentes. PUT/POST con global, perKey y perConnection (bytes/s, 0 = sin límite)
+// para cambiarlas en caliente; con key=<clave>, perKey fija la tasa solo de esa clave (-1 la quita).
+// Solo desde la propia máquina.
+public class BandwidthAdminHandler implements RouteHandler {
+
+    public static final String PATH = "/admin/bandwidth";
+
+    private final BandwidthShaper shaper;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public BandwidthAdminHandler(BandwidthShaper shaper) {
+        this.shaper = shaper;
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        if (!PATH.equals(request.getPath())) {
+            throw new HttpException(404, "No encontrado");
+        }
+        if (!request.isLoopback()) {
+            throw new HttpException(403, "Solo disponible en local");
+        }
+        String method = request.getMethod();
+        if ("PUT".equals(method) || "POST".equals(method)) {
+            update(request);
+        } else if (!"GET".equals(method) && !request.isHead()) {
+            response.setHeader("Allow", "GET, HEAD, PUT, POST");
+            throw new HttpException(405, "Método no permitido");
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("global", shaper.getGlobalRate());
+        body.put("perKey", shaper.getPerKeyRate());
+        body.put("perConnection", shaper.getPerConnectionRate());
+        // Las claves no se muestran: solo cuántas tienen una tasa propia
+        body.put("keyOverrides", shaper.getKeyOverrides().size());
+        body.put("activeStreams", shaper.getActiveStreams());
+        response.setHeader("Cache-Control", "no-cache");
+        response.sendJson(200, mapper.writeValueAsBytes(body));
+    }
+
+    private void update(MediaRequest request) throws HttpException {
+        Long global = rateParam(request, "global");
+        Long perKey = rateParam(request, "perKey");
+        Long perConnection = rateParam(request, "perConnection");
+        String key = request.queryParam("key");
+        if (global != null) {
+            shaper.setGlobalRate(Math.max(0, global));
+        }
+        if (perKey != null) {
+            if (key != null) {
+                shaper.setKeyRate(key, perKey);
+            } else {
+                shaper.setPerKeyRate(Math.max(0, perKey));
+            }
+        }
+        if (perConnection != null) {
+            shaper.setPerConnectionRate(Math.max(0, perConnection));
+        }
+    }
+
+    private static Long rateParam(MediaRequest request, String name) throws HttpException {
+        String value = request.queryParam(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Parámetro " + name + " no válido");
+        }
+    }
+}
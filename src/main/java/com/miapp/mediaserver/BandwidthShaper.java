@@ -0,0 +1,209 @@
+package com.miapp.mediaserver;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reparto del ancho de banda de subida: cubetas de fichas por conexión, por clave y global.
+// Cada escritura pide como mucho QUANTUM bytes y las reservas se atienden por orden de llegada,
+// así que con el enlace saturado las conexiones activas se turnan y la capacidad libre se reparte a partes iguales.
+public class BandwidthShaper {
+
+    public static final int QUANTUM = 64 * 1024;
+
+    private final TokenBucket global;
+    private final Map<String, KeyBuckets> perKey = new ConcurrentHashMap<>();
+    private final Map<String, Long> keyOverrides = new ConcurrentHashMap<>();
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+    private final LongAdder bytesSent = new LongAdder();
+    private volatile long perKeyRate;
+    private volatile long perConnectionRate;
+
+    // Tasas en bytes por segundo; 0 significa sin límite
+    public BandwidthShaper(long globalRate, long perKeyRate, long perConnectionRate) {
+        this.global = new TokenBucket(globalRate);
+        this.perKeyRate = perKeyRate;
+        this.perConnectionRate = perConnectionRate;
+    }
+
+    public static BandwidthShaper fromConfig(ServerConfig config) {
+        return new BandwidthShaper(
+                config.getLong("shaping.globalBytesPerSecond", 0),
+                config.getLong("shaping.perKeyBytesPerSecond", 0),
+                config.getLong("shaping.perConnectionBytesPerSecond", 0));
+    }
+
+    public Stream open(String key) {
+        KeyBuckets buckets = perKey.compute(key, (k, existing) -> {
+            KeyBuckets current = existing != null ? existing : new KeyBuckets(new TokenBucket(rateForKey(k)));
+            current.streams++;
+            return current;
+        });
+        Stream stream = new Stream(key, buckets.bucket, new TokenBucket(perConnectionRate));
+        streams.add(stream);
+        return stream;
+    }
+
+    public long getGlobalRate() {
+        return global.getRate();
+    }
+
+    public long getPerKeyRate() {
+        return perKeyRate;
+    }
+
+    public long getPerConnectionRate() {
+        return perConnectionRate;
+    }
+
+    public Map<String, Long> getKeyOverrides() {
+        return Map.copyOf(keyOverrides);
+    }
+
+    public int getActiveStreams() {
+        return streams.size();
+    }
+
+    // Todo lo que sale por una conexión pasa por acquire, con o sin límite configurado
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    // Los cambios se aplican también a las conexiones en curso
+    public void setGlobalRate(long rate) {
+        global.setRate(rate);
+    }
+
+    public void setPerKeyRate(long rate) {
+        perKeyRate = rate;
+        perKey.forEach((key, buckets) -> buckets.bucket.setRate(rateForKey(key)));
+    }
+
+    public void setKeyRate(String key, long rate) {
+        if (rate < 0) {
+            keyOverrides.remove(key);
+        } else {
+            keyOverrides.put(key, rate);
+        }
+        KeyBuckets buckets = perKey.get(key);
+        if (buckets != null) {
+            buckets.bucket.setRate(rateForKey(key));
+        }
+    }
+
+    public void setPerConnectionRate(long rate) {
+        perConnectionRate = rate;
+        for (Stream stream : streams) {
+            stream.connection.setRate(rate);
+        }
+    }
+
+    private long rateForKey(String key) {
+        return keyOverrides.getOrDefault(key, perKeyRate);
+    }
+
+    private void close(Stream stream) {
+        if (!streams.remove(stream)) {
+            return;
+        }
+        perKey.computeIfPresent(stream.key, (k, buckets) -> --buckets.streams == 0 ? null : buckets);
+    }
+
+    private static final class KeyBuckets {
+        private final TokenBucket bucket;
+        private int streams;
+
+        KeyBuckets(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    // Cuota de una conexión; MediaResponse la consulta antes de cada tramo que escribe
+    public final class Stream implements AutoCloseable {
+        private final String key;
+        private final TokenBucket keyBucket;
+        private final TokenBucket connection;
+
+        private Stream(String key, TokenBucket keyBucket, TokenBucket connection) {
+            this.key = key;
+            this.keyBucket = keyBucket;
+            this.connection = connection;
+        }
+
+        // De dentro hacia fuera: solo se reserva del global cuando la conexión y su clave ya pueden enviar
+        public void acquire(int bytes) throws InterruptedIOException {
+            connection.acquire(bytes);
+            keyBucket.acquire(bytes);
+            global.acquire(bytes);
+            bytesSent.add(bytes);
+        }
+
+        @Override
+        public void close() {
+            BandwidthShaper.this.close(this);
+        }
+    }
+
+    // Cubeta con reserva anticipada: quien pide más fichas de las que hay deja la deuda y duerme lo que
+    // tarda en saldarse, con lo que los que llegan después esperan detrás de él.
+    static final class TokenBucket {
+        private long rate;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(long rate) {
+            this.rate = rate;
+            this.tokens = burst(rate);
+        }
+
+        synchronized long getRate() {
+            return rate;
+        }
+
+        synchronized void setRate(long newRate) {
+            refill(System.nanoTime());
+            rate = newRate;
+            tokens = Math.min(tokens, burst(newRate));
+            if (newRate <= 0) {
+                tokens = 0;
+            }
+        }
+
+        void acquire(int bytes) throws InterruptedIOException {
+            long waitNanos = reserve(bytes);
+            if (waitNanos <= 0) {
+                return;
+            }
+            try {
+                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Envío interrumpido");
+            }
+        }
+
+        synchronized long reserve(int bytes) {
+            if (rate <= 0) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            refill(now);
+            tokens -= bytes;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1_000_000_000d / rate);
+        }
+
+        private void refill(long now) {
+            if (rate > 0) {
+                tokens = Math.min(burst(rate), tokens + (now - lastRefill) * (double) rate / 1_000_000_000d);
+            }
+            lastRefill = now;
+        }
+
+        // Ráfaga de un cuarto de segundo, y nunca menos de un tramo completo
+        private static double burst(long rate) {
+            return Math.max(QUANTUM, rate / 4.0);
+        }
+    }
+}
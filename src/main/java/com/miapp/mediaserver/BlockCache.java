@@ -0,0 +1,386 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+// Caché de bloques de fichero fuera del heap para los rangos más pedidos. Los bloques viven en slabs
+// directos que se reservan al primer uso y no se liberan; índice y metadatos son arrays primitivos, así que
+// un acierto solo crea la clave del fichero por petición y una vista ByteBuffer por bloque enviado. Expulsión
+// con CLOCK y admisión TinyLFU: un bloque nuevo solo desplaza a la víctima si se ha pedido más veces que ella.
+public class BlockCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockCache.class);
+    private static final int SLAB_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_FILE_IDS = 100_000;
+    private static final long EMPTY = -1;
+
+    private final int blockSize;
+    private final int slots;
+    private final int slotsPerSlab;
+    private final ByteBuffer[] slabs;
+    private final long[] keys;
+    private final byte[] referenced;
+    private final int[] pins;
+    private final int[] free;
+    private int freeCount;
+    private int hand;
+    private final LongIntMap index;
+    private final FrequencySketch sketch;
+
+    // Los ficheros se identifican por ruta, tamaño y fecha: si cambian, sus bloques viejos quedan huérfanos
+    private final Map<FileKey, Integer> fileIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextFileId = new AtomicInteger();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    private long prefetched;
+
+    public BlockCache(long maxBytes, int blockSize) {
+        this.blockSize = blockSize;
+        this.slots = (int) Math.min(Integer.MAX_VALUE / 2, maxBytes / blockSize);
+        this.slotsPerSlab = Math.max(1, SLAB_BYTES / blockSize);
+        this.slabs = new ByteBuffer[(slots + slotsPerSlab - 1) / slotsPerSlab];
+        this.keys = new long[slots];
+        this.referenced = new byte[slots];
+        this.pins = new int[slots];
+        this.free = new int[slots];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < slots; i++) {
+            free[i] = slots - 1 - i;
+        }
+        this.freeCount = slots;
+        this.index = new LongIntMap(slots);
+        this.sketch = new FrequencySketch(slots);
+    }
+
+    // Devuelve null si la caché está desactivada (cache.maxBytes=0)
+    public static BlockCache fromConfig(ServerConfig config) {
+        long maxBytes = config.getLong("cache.maxBytes", 128L * 1024 * 1024);
+        int blockSize = config.getInt("cache.blockBytes", 256 * 1024);
+        if (maxBytes < blockSize) {
+            return null;
+        }
+        logger.info("Caché de bloques: {} MB en bloques de {} KB", maxBytes / (1024 * 1024), blockSize / 1024);
+        return new BlockCache(maxBytes, blockSize);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // Envía [position, position + count) del fichero: los bloques en caché desde memoria y el resto
+    // leyéndolos de disco, o con transferTo si la admisión los rechaza.
+    public void send(Path file, long size, long lastModified, FileChannel channel, long position, long count,
+                     MediaResponse response) throws IOException {
+        int fileId = fileId(file, size, lastModified);
+        long end = position + count;
+        while (position < end) {
+            long block = position / blockSize;
+            int offset = (int) (position - block * blockSize);
+            int blockLength = (int) Math.min(blockSize, size - block * blockSize);
+            int length = (int) Math.min(end - position, blockLength - offset);
+            int slot = acquire(key(fileId, block), channel, block * blockSize, blockLength);
+            if (slot < 0) {
+                response.sendFile(channel, position, length);
+            } else {
+                try {
+                    response.write(slice(slot, offset, length));
+                } finally {
+                    release(slot);
+                }
+            }
+            position += length;
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, rejections, prefetched, (long) (slots - freeCount) * blockSize,
+                (long) slots * blockSize);
+    }
+
+    private int fileId(Path file, long size, long lastModified) {
+        if (fileIds.size() > MAX_FILE_IDS) {
+            fileIds.clear();
+        }
+        return fileIds.computeIfAbsent(new FileKey(file, size, lastModified), ignored -> nextFileId.getAndIncrement());
+    }
+
+    private static long key(int fileId, long block) {
+        return ((long) fileId << 32) | (block & 0xFFFFFFFFL);
+    }
+
+    // Devuelve el hueco fijado con el bloque cargado, o -1 si no se admite en la caché
+    private int acquire(long key, FileChannel channel, long blockStart, int blockLength) throws IOException {
+        int slot;
+        synchronized (this) {
+            sketch.increment(key);
+            slot = index.get(key);
+            if (slot >= 0) {
+                hits++;
+                referenced[slot] = 1;
+                pins[slot]++;
+                return slot;
+            }
+            misses++;
+            slot = reserve(key, false);
+            if (slot < 0) {
+                rejections++;
+                return -1;
+            }
+            pins[slot] = 1;
+        }
+        return load(key, slot, channel, blockStart, blockLength) ? slot : -1;
+    }
+
+    // Lectura anticipada: los bloques que faltan se cargan sin pasar por la admisión, porque el lector
+    // secuencial los va a pedir enseguida. No cuentan como aciertos ni fallos.
+    public void prefetch(Path file, long size, long lastModified, FileChannel channel, long position, long count,
+                         BooleanSupplier cancelled) throws IOException {
+        int fileId = fileId(file, size, lastModified);
+        long end = Math.min(size, position + count);
+        for (long block = position / blockSize; block * blockSize < end; block++) {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            long key = key(fileId, block);
+            int slot;
+            synchronized (this) {
+                if (index.get(key) >= 0) {
+                    continue;
+                }
+                slot = reserve(key, true);
+                if (slot < 0) {
+                    return;
+                }
+                pins[slot] = 1;
+                prefetched++;
+            }
+            if (load(key, slot, channel, block * blockSize, (int) Math.min(blockSize, size - block * blockSize))) {
+                release(slot);
+            }
+        }
+    }
+
+    // Lee el bloque en un hueco ya fijado y lo publica en el índice; si no se publica, el hueco queda libre
+    private boolean load(long key, int slot, FileChannel channel, long blockStart, int blockLength)
+            throws IOException {
+        // La lectura se hace fuera del cerrojo; el hueco aún no está en el índice, nadie más lo ve
+        boolean loaded = false;
+        boolean cached = false;
+        try {
+            ByteBuffer target = slice(slot, 0, blockLength);
+            while (target.hasRemaining()) {
+                if (channel.read(target, blockStart + target.position()) < 0) {
+                    throw new IOException("El fichero se ha truncado durante el envío");
+                }
+            }
+            loaded = true;
+        } finally {
+            synchronized (this) {
+                if (!loaded || index.get(key) >= 0) {
+                    // Falló la lectura u otra petición cargó el mismo bloque a la vez: el hueco vuelve a quedar libre
+                    pins[slot] = 0;
+                    free[freeCount++] = slot;
+                } else {
+                    keys[slot] = key;
+                    referenced[slot] = 1;
+                    index.put(key, slot);
+                    cached = true;
+                }
+            }
+        }
+        return cached;
+    }
+
+    private int reserve(long key, boolean force) {
+        if (freeCount > 0) {
+            int slot = free[--freeCount];
+            ensureSlab(slot);
+            return slot;
+        }
+        int victim = clockVictim();
+        if (victim < 0 || !force && sketch.frequency(key) <= sketch.frequency(keys[victim])) {
+            return -1;
+        }
+        index.remove(keys[victim]);
+        keys[victim] = EMPTY;
+        evictions++;
+        return victim;
+    }
+
+    // Recorre como mucho dos vueltas: la primera quita las marcas de uso y la segunda encuentra víctima
+    private int clockVictim() {
+        for (int step = 0; step < 2 * slots; step++) {
+            int slot = hand;
+            hand = hand + 1 == slots ? 0 : hand + 1;
+            if (pins[slot] > 0 || keys[slot] == EMPTY) {
+                continue;
+            }
+            if (referenced[slot] != 0) {
+                referenced[slot] = 0;
+                continue;
+            }
+            return slot;
+        }
+        return -1;
+    }
+
+    private void ensureSlab(int slot) {
+        int slab = slot / slotsPerSlab;
+        if (slabs[slab] == null) {
+            int slabSlots = Math.min(slotsPerSlab, slots - slab * slotsPerSlab);
+            slabs[slab] = ByteBuffer.allocateDirect(slabSlots * blockSize);
+        }
+    }
+
+    private synchronized void release(int slot) {
+        pins[slot]--;
+    }
+
+    // El slab se creó bajo el cerrojo antes de que el hueco fuera visible, no hace falta volver a tomarlo
+    private ByteBuffer slice(int slot, int offset, int length) {
+        int base = (slot % slotsPerSlab) * blockSize;
+        return slabs[slot / slotsPerSlab].slice(base + offset, length);
+    }
+
+    private record FileKey(Path file, long size, long lastModified) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, long rejections, long prefetched, long usedBytes,
+                        long capacityBytes) {
+
+        public double hitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    // Tabla hash long -> int con direccionamiento abierto; borrado por desplazamiento hacia atrás
+    static final class LongIntMap {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int get(long key) {
+            for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            int i = mix(key) & mask;
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int i = mix(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = EMPTY;
+            for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = mix(keys[j]) & mask;
+                // Se adelanta la entrada si su posición ideal no queda entre el hueco y ella
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    keys[j] = EMPTY;
+                    i = j;
+                }
+            }
+        }
+    }
+
+    // Count-min de cuatro filas con contadores de 4 bits; se divide a la mitad periódicamente para
+    // que la popularidad antigua vaya pesando menos
+    static final class FrequencySketch {
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int slots) {
+            int width = Integer.highestOneBit(Math.max(16, slots) * 2 - 1) << 1;
+            table = new long[width];
+            mask = width - 1;
+            sampleSize = 10 * Math.max(16, slots);
+        }
+
+        void increment(long key) {
+            int hash = mix(key);
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                added |= incrementAt(indexOf(hash, row), (hash >>> (row * 8)) & 0xF);
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(long key) {
+            int hash = mix(key);
+            int min = 15;
+            for (int row = 0; row < 4; row++) {
+                int shift = ((hash >>> (row * 8)) & 0xF) << 2;
+                min = Math.min(min, (int) ((table[indexOf(hash, row)] >>> shift) & 0xF));
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = hash * (0x9E3779B9 + row * 0x7F4A7C15);
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private boolean incrementAt(int i, int counter) {
+            int shift = counter << 2;
+            if (((table[i] >>> shift) & 0xF) == 0xF) {
+                return false;
+            }
+            table[i] += 1L << shift;
+            return true;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            }
+            additions /= 2;
+        }
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
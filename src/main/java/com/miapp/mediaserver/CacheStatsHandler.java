@@ -0,0 +1,47 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /admin/cache: aciertos, fallos y expulsiones de la caché de bloques. Solo desde la propia máquina.
+public class CacheStatsHandler implements RouteHandler {
+
+    public static final String PATH = "/admin/cache";
+
+    private final BlockCache cache;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public CacheStatsHandler(BlockCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        if (!PATH.equals(request.getPath())) {
+            throw new HttpException(404, "No encontrado");
+        }
+        if (!request.isLoopback()) {
+            throw new HttpException(403, "Solo disponible en local");
+        }
+        if (!"GET".equals(request.getMethod()) && !request.isHead()) {
+            response.setHeader("Allow", "GET, HEAD");
+            throw new HttpException(405, "Método no permitido");
+        }
+        BlockCache.Stats stats = cache.getStats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("hits", stats.hits());
+        body.put("misses", stats.misses());
+        body.put("hitRatio", stats.hitRatio());
+        body.put("evictions", stats.evictions());
+        body.put("rejections", stats.rejections());
+        body.put("prefetched", stats.prefetched());
+        body.put("usedBytes", stats.usedBytes());
+        body.put("capacityBytes", stats.capacityBytes());
+        body.put("blockBytes", cache.getBlockSize());
+        response.setHeader("Cache-Control", "no-cache");
+        response.sendJson(200, mapper.writeValueAsBytes(body));
+    }
+}
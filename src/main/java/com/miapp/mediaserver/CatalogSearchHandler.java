@@ -0,0 +1,103 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET /catalog/search?q=...&offset=0&limit=20
+public class CatalogSearchHandler implements RouteHandler {
+
+    public static final String PATH = "/catalog/search";
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final CatalogSearchIndex index;
+    private final StreamKeyRegistry streamKeys;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public CatalogSearchHandler(CatalogSearchIndex index, StreamKeyRegistry streamKeys) {
+        this.index = index;
+        this.streamKeys = streamKeys;
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        if (!PATH.equals(request.getPath())) {
+            throw new HttpException(404, "No encontrado");
+        }
+        if (!"GET".equals(request.getMethod()) && !request.isHead()) {
+            response.setHeader("Allow", "GET, HEAD");
+            throw new HttpException(405, "Método no permitido");
+        }
+        String key = StreamKeyRegistry.keyOf(request);
+        if (key == null) {
+            throw new HttpException(401, "Falta la clave de emisión");
+        }
+        if (!streamKeys.isValid(key)) {
+            throw new HttpException(403, "Clave de emisión no válida");
+        }
+        String query = request.queryParam("q");
+        if (query == null || query.isBlank()) {
+            throw new HttpException(400, "Falta el parámetro q");
+        }
+        int offset = Math.max(0, intParam(request, "offset", 0));
+        int limit = Math.min(MAX_LIMIT, Math.max(1, intParam(request, "limit", DEFAULT_LIMIT)));
+
+        CatalogSearchIndex.Page page = index.search(query, offset, limit);
+        List<Map<String, Object>> items = new ArrayList<>(page.items().size());
+        for (MediaEntry entry : page.items()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("path", entry.relativePath());
+            item.put("url", MediaFileHandler.PREFIX + encodePath(entry.relativePath()));
+            item.put("size", entry.size());
+            item.put("lastModified", entry.lastModified());
+            item.put("container", entry.container());
+            item.put("durationMillis", entry.durationMillis());
+            // Extraída al indexar y guardada con el índice: listar no vuelve a leer cabeceras
+            MediaMetadata metadata = entry.metadata();
+            item.put("videoCodec", metadata.videoCodec());
+            item.put("audioCodec", metadata.audioCodec());
+            item.put("width", metadata.width());
+            item.put("height", metadata.height());
+            item.put("title", metadata.title());
+            item.put("artist", metadata.artist());
+            items.add(item);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("total", page.total());
+        body.put("offset", offset);
+        body.put("limit", limit);
+        body.put("items", items);
+        response.setHeader("Cache-Control", "no-cache");
+        response.sendJson(200, mapper.writeValueAsBytes(body));
+    }
+
+    private static int intParam(MediaRequest request, String name, int defaultValue) throws HttpException {
+        String value = request.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Parámetro " + name + " no válido");
+        }
+    }
+
+    static String encodePath(String relativePath) {
+        StringBuilder encoded = new StringBuilder(relativePath.length() + 16);
+        for (String segment : relativePath.split("/")) {
+            if (!encoded.isEmpty()) {
+                encoded.append('/');
+            }
+            encoded.append(URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20"));
+        }
+        return encoded.toString();
+    }
+}
@@ -0,0 +1,491 @@
+package com.miapp.mediaserver;
+
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice invertido sobre título, carpetas y etiquetas. Las listas de apariciones son int[] ordenados;
+// los términos muy frecuentes llevan además un mapa de bits para intersecar palabra a palabra.
+public class CatalogSearchIndex implements LibraryIndexListener {
+
+    // Un término es denso si aparece en 1 de cada 32 documentos: a partir de ahí el mapa de bits ocupa menos
+    private static final int DENSE_RATIO = 32;
+    private static final int MIN_DENSE_DOCS = 4096;
+    private static final Postings EMPTY = new Postings(new int[0], 0);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Path, Integer> docIds = new HashMap<>();
+    private MediaEntry[] docs = new MediaEntry[1024];
+    private long[] live = new long[16];
+    private int docCount;
+    private int deleted;
+
+    public record Page(int total, int offset, List<MediaEntry> items) {
+    }
+
+    @Override
+    public void onIndexLoaded(Collection<MediaEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            rebuild(entries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEntryUpdated(MediaEntry entry) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(entry.path());
+            addLocked(entry);
+            // Un fichero que sigue cambiando (copia en curso, grabación) deja un hueco por cada aviso
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEntryRemoved(MediaEntry entry) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(entry.path());
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Con muchos huecos se reconstruye para que las listas no crezcan con documentos muertos
+    private void compactIfSparse() {
+        if (deleted > 1024 && deleted > docCount / 4) {
+            List<MediaEntry> remaining = new ArrayList<>(docCount - deleted);
+            for (int i = 0; i < docCount; i++) {
+                if (docs[i] != null) {
+                    remaining.add(docs[i]);
+                }
+            }
+            rebuild(remaining);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Identificadores asignados, vivos o no: lo que ocupan docs, live y las listas
+    int docCount() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Todos los términos deben aparecer; el último se busca como prefijo y los que no existen, con tolerancia
+    public Page search(String query, int offset, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new Page(0, offset, List.of());
+        }
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[queryTerms.size()];
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                boolean last = i == queryTerms.size() - 1;
+                Postings ids = last ? prefix(term) : exact(term);
+                if (!anyLive(ids)) {
+                    ids = fuzzy(term);
+                }
+                if (!anyLive(ids)) {
+                    return new Page(0, offset, List.of());
+                }
+                lists[i] = ids;
+            }
+            // Se empieza por la lista más corta para que las intersecciones sean baratas. Los mapas de bits
+            // solo se crean al añadir, así que una lista larga puede no tenerlo aunque la más corta sí
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            return allDense(lists) ? denseResults(lists, offset, limit) : sparseResults(lists, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean allDense(Postings[] lists) {
+        for (Postings list : lists) {
+            if (list.bits == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Las listas conservan los borrados hasta la reconstrucción: solo cuenta si queda algún documento vivo
+    private boolean anyLive(Postings postings) {
+        if (postings.bits != null) {
+            for (int w = 0; w < postings.bits.length && w < live.length; w++) {
+                if ((postings.bits[w] & live[w]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int i = postings.size - 1; i >= 0; i--) {
+            if (docs[postings.ids[i]] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Todas las listas tienen mapa de bits: AND palabra a palabra y recuento con bitCount
+    private Page denseResults(Postings[] lists, int offset, int limit) {
+        long[] result = Arrays.copyOf(live, (docCount + 63) >>> 6);
+        for (Postings list : lists) {
+            long[] bits = list.bits;
+            for (int w = 0; w < result.length; w++) {
+                result[w] &= w < bits.length ? bits[w] : 0L;
+            }
+        }
+        int total = 0;
+        List<MediaEntry> items = new ArrayList<>(limit);
+        for (int w = 0; w < result.length; w++) {
+            long word = result[w];
+            int count = Long.bitCount(word);
+            if (total + count <= offset || items.size() >= limit) {
+                total += count;
+                continue;
+            }
+            while (word != 0) {
+                int id = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (total >= offset && items.size() < limit) {
+                    items.add(docs[id]);
+                }
+                total++;
+            }
+        }
+        return new Page(total, offset, items);
+    }
+
+    // Se filtran los candidatos de la lista más corta contra el resto: por bit si es densa, por mezcla si no
+    private Page sparseResults(Postings[] lists, int offset, int limit) {
+        int[] candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int size = candidates.length;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            size = lists[i].bits != null
+                    ? filterByBits(candidates, size, lists[i].bits)
+                    : intersect(candidates, size, lists[i]);
+        }
+        int total = 0;
+        List<MediaEntry> items = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < size; i++) {
+            MediaEntry entry = docs[candidates[i]];
+            if (entry == null) {
+                continue;
+            }
+            if (total >= offset && items.size() < limit) {
+                items.add(entry);
+            }
+            total++;
+        }
+        return new Page(total, offset, items);
+    }
+
+    // Minúsculas, sin tildes y partido por todo lo que no sea letra o dígito
+    static List<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        boolean ascii = true;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+                ascii &= c < 128;
+            } else if (!token.isEmpty()) {
+                tokens.add(ascii ? token.toString() : fold(token.toString()));
+                token.setLength(0);
+                ascii = true;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private static String fold(String token) {
+        String decomposed = Normalizer.normalize(token, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    // Título (nombre sin extensión), carpetas de la ruta y contenedor como etiqueta
+    private static Set<String> termsOf(MediaEntry entry) {
+        Set<String> result = new LinkedHashSet<>(tokenize(entry.relativePath()));
+        result.add(entry.container());
+        return result;
+    }
+
+    private void rebuild(Collection<MediaEntry> entries) {
+        terms.clear();
+        docIds.clear();
+        docs = new MediaEntry[Math.max(1024, entries.size())];
+        live = new long[(docs.length + 63) >>> 6];
+        docCount = 0;
+        deleted = 0;
+        for (MediaEntry entry : entries) {
+            addLocked(entry);
+        }
+        for (Postings postings : terms.values()) {
+            postings.trim();
+            if (isDense(postings.size)) {
+                postings.buildBits(docCount);
+            }
+        }
+    }
+
+    // Los identificadores crecen siempre, así que añadir al final mantiene las listas ordenadas
+    private void addLocked(MediaEntry entry) {
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docs.length * 2);
+            live = Arrays.copyOf(live, (docs.length + 63) >>> 6);
+        }
+        int id = docCount++;
+        docs[id] = entry;
+        live[id >>> 6] |= 1L << id;
+        docIds.put(entry.path(), id);
+        for (String term : termsOf(entry)) {
+            Postings postings = terms.computeIfAbsent(term, ignored -> new Postings());
+            postings.add(id);
+            if (postings.bits == null && isDense(postings.size)) {
+                postings.buildBits(docCount);
+            }
+        }
+    }
+
+    // Borrado lógico: el documento se descarta al consultar y desaparece en la siguiente reconstrucción
+    private void removeLocked(Path path) {
+        Integer id = docIds.remove(path);
+        if (id != null) {
+            docs[id] = null;
+            live[id >>> 6] &= ~(1L << id);
+            deleted++;
+        }
+    }
+
+    private boolean isDense(int size) {
+        return docCount >= MIN_DENSE_DOCS && (long) size * DENSE_RATIO >= docCount;
+    }
+
+    private Postings exact(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? EMPTY : postings;
+    }
+
+    private Postings prefix(String term) {
+        NavigableMap<String, Postings> matches = terms.subMap(term, true, term + Character.MAX_VALUE, false);
+        return union(matches.values());
+    }
+
+    // Distancia de edición 1 (2 para términos largos) entre términos con la misma inicial
+    private Postings fuzzy(String term) {
+        if (term.length() < 4) {
+            return EMPTY;
+        }
+        int maxDistance = term.length() >= 8 ? 2 : 1;
+        char first = term.charAt(0);
+        NavigableMap<String, Postings> candidates = terms.subMap(String.valueOf(first), true,
+                String.valueOf((char) (first + 1)), false);
+        List<Postings> matches = new ArrayList<>();
+        for (Map.Entry<String, Postings> candidate : candidates.entrySet()) {
+            String other = candidate.getKey();
+            if (Math.abs(other.length() - term.length()) <= maxDistance
+                    && withinDistance(term, other, maxDistance)) {
+                matches.add(candidate.getValue());
+            }
+        }
+        return union(matches);
+    }
+
+    // La unión densa se hace con OR de mapas de bits; la dispersa, ordenando los identificadores
+    private Postings union(Collection<Postings> postings) {
+        if (postings.isEmpty()) {
+            return EMPTY;
+        }
+        if (postings.size() == 1) {
+            return postings.iterator().next();
+        }
+        long total = 0;
+        for (Postings list : postings) {
+            total += list.size;
+        }
+        if (!isDense((int) Math.min(Integer.MAX_VALUE, total))) {
+            int[] ids = new int[(int) total];
+            int size = 0;
+            for (Postings list : postings) {
+                System.arraycopy(list.ids, 0, ids, size, list.size);
+                size += list.size;
+            }
+            Arrays.sort(ids);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || ids[unique - 1] != ids[i]) {
+                    ids[unique++] = ids[i];
+                }
+            }
+            return new Postings(ids, unique);
+        }
+        long[] bits = new long[(docCount + 63) >>> 6];
+        for (Postings list : postings) {
+            if (list.bits != null) {
+                for (int w = 0; w < list.bits.length && w < bits.length; w++) {
+                    bits[w] |= list.bits[w];
+                }
+            } else {
+                for (int i = 0; i < list.size; i++) {
+                    bits[list.ids[i] >>> 6] |= 1L << list.ids[i];
+                }
+            }
+        }
+        return Postings.fromBits(bits);
+    }
+
+    private static int filterByBits(int[] candidates, int size, long[] bits) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int id = candidates[i];
+            int word = id >>> 6;
+            if (word < bits.length && (bits[word] & (1L << id)) != 0) {
+                candidates[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    private static int intersect(int[] candidates, int size, Postings other) {
+        int i = 0;
+        int j = 0;
+        int kept = 0;
+        while (i < size && j < other.size) {
+            if (candidates[i] < other.ids[j]) {
+                i++;
+            } else if (candidates[i] > other.ids[j]) {
+                j++;
+            } else {
+                candidates[kept++] = candidates[i];
+                i++;
+                j++;
+            }
+        }
+        return kept;
+    }
+
+    // Levenshtein con corte temprano en cuanto una fila supera la distancia máxima
+    static boolean withinDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= max;
+    }
+
+    private static final class Postings {
+        private int[] ids;
+        private int size;
+        private long[] bits;
+
+        Postings() {
+            this(new int[2], 0);
+        }
+
+        Postings(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        static Postings fromBits(long[] bits) {
+            int count = 0;
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+            int[] ids = new int[count];
+            int size = 0;
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    ids[size++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            Postings postings = new Postings(ids, size);
+            postings.bits = bits;
+            return postings;
+        }
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            ids[size++] = id;
+            if (bits != null) {
+                if ((id >>> 6) >= bits.length) {
+                    bits = Arrays.copyOf(bits, Math.max(bits.length * 2, (id >>> 6) + 1));
+                }
+                bits[id >>> 6] |= 1L << id;
+            }
+        }
+
+        void buildBits(int docCount) {
+            bits = new long[(docCount + 63) >>> 6];
+            for (int i = 0; i < size; i++) {
+                bits[ids[i] >>> 6] |= 1L << ids[i];
+            }
+        }
+
+        void trim() {
+            if (ids.length != size) {
+                ids = Arrays.copyOf(ids, size);
+            }
+        }
+    }
+}
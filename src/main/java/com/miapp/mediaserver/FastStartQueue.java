@@ -0,0 +1,98 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Cola de trabajos junto al indexador: un solo hilo de baja prioridad y la copia limitada en ancho de banda
+public class FastStartQueue implements LibraryIndexListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(FastStartQueue.class);
+
+    private final Mp4FastStart fastStart;
+    private final long quietMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "faststart");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    public FastStartQueue(Mp4FastStart fastStart, long quietMillis) {
+        this.fastStart = fastStart;
+        this.quietMillis = quietMillis;
+    }
+
+    public static FastStartQueue fromConfig(ServerConfig config) {
+        return new FastStartQueue(new Mp4FastStart(config.getLong("faststart.maxBytesPerSecond", 50L * 1024 * 1024)),
+                config.getLong("faststart.quietMillis", 60_000));
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    @Override
+    public void onIndexLoaded(Collection<MediaEntry> entries) {
+        entries.forEach(this::enqueue);
+    }
+
+    @Override
+    public void onEntryUpdated(MediaEntry entry) {
+        enqueue(entry);
+    }
+
+    @Override
+    public void onEntryRemoved(MediaEntry entry) {
+        pending.remove(entry.path());
+    }
+
+    private void enqueue(MediaEntry entry) {
+        if ("mp4".equals(entry.container()) && pending.add(entry.path())) {
+            schedule(entry.path(), 0);
+        }
+    }
+
+    private void schedule(Path path, long delayMillis) {
+        if (!executor.isShutdown()) {
+            executor.schedule(() -> process(path), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void process(Path path) {
+        if (!pending.contains(path)) {
+            return;
+        }
+        try {
+            long age = System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis();
+            // Un fichero recién modificado puede estar copiándose todavía
+            if (age < quietMillis) {
+                schedule(path, quietMillis - age);
+                return;
+            }
+            pending.remove(path);
+            if (Mp4FastStart.needsFastStart(path)) {
+                fastStart.process(path);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (NoSuchFileException e) {
+            pending.remove(path);
+        } catch (IOException | RuntimeException e) {
+            pending.remove(path);
+            logger.warn("No se pudo reubicar moov en {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.miapp.mediaserver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Intervalo en el que el hilo de JavaFX no atendió eventos; la duración del evento es el bloqueo
+@Name("com.miapp.mediaserver.FxStall")
+@Label("Bloqueo del hilo de JavaFX")
+@Category({"MediaServer", "Interfaz"})
+@StackTrace(false)
+public class FxStallEvent extends jdk.jfr.Event {
+}
@@ -0,0 +1,96 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Mide cuánto tarda el hilo de JavaFX en atender una tarea trivial. Mientras hay una sonda pendiente no se
+// manda otra, así que un bloqueo largo se registra una sola vez y con su duración completa.
+public class FxStallMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FxStallMonitor.class);
+    private static final long WARN_MILLIS = 1_000;
+
+    private final Executor fxExecutor;
+    private final long intervalMillis;
+    private final long stallNanos;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram delay;
+    private final MetricsRegistry.Counter stalls;
+    private final LongAdder stalledNanos = new LongAdder();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fx-stall-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> task;
+    private volatile boolean pending;
+
+    public FxStallMonitor(Executor fxExecutor, long intervalMillis, long stallMillis, MetricsRegistry metrics) {
+        this.fxExecutor = fxExecutor;
+        this.intervalMillis = intervalMillis;
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+        this.metrics = metrics;
+        this.delay = metrics.histogram("mediaserver_fx_event_delay_seconds",
+                "Espera de una tarea en la cola del hilo de JavaFX");
+        this.stalls = metrics.counter("mediaserver_fx_stalls_total",
+                "Veces que el hilo de JavaFX superó el umbral de bloqueo");
+        metrics.counterFunction("mediaserver_fx_stall_seconds_total", "Tiempo total con el hilo de JavaFX bloqueado",
+                () -> stalledNanos.sum() / 1e9);
+    }
+
+    public static FxStallMonitor fromConfig(ServerConfig config, Executor fxExecutor) {
+        return new FxStallMonitor(fxExecutor,
+                config.getLong("metrics.fxIntervalMillis", 100),
+                config.getLong("metrics.fxStallMillis", 100),
+                MetricsRegistry.shared());
+    }
+
+    public synchronized void start() {
+        if (task == null) {
+            task = scheduler.scheduleAtFixedRate(this::ping, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    private void ping() {
+        if (pending) {
+            return;
+        }
+        pending = true;
+        FxStallEvent event = metrics.isJfrEnabled() ? new FxStallEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long posted = System.nanoTime();
+        fxExecutor.execute(() -> {
+            long waited = System.nanoTime() - posted;
+            pending = false;
+            delay.recordNanos(waited);
+            if (waited < stallNanos) {
+                return;
+            }
+            stalls.increment();
+            stalledNanos.add(waited);
+            if (waited >= TimeUnit.MILLISECONDS.toNanos(WARN_MILLIS)) {
+                logger.warn("Hilo de JavaFX bloqueado durante {} ms", waited / 1_000_000);
+            }
+            if (event != null) {
+                event.end();
+                event.commit();
+            }
+        });
+    }
+}
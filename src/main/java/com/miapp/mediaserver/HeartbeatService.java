@@ -0,0 +1,152 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class HeartbeatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatService.class);
+    private static final long INTERVAL_SECONDS = 15;
+
+    private static HeartbeatService shared;
+
+    private final MediaServerApiClient api;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ScheduledFuture<?> task;
+    private String token;
+    // Cambia en cada inicio y fin de sesión: las respuestas de una sesión anterior se descartan
+    private long generation;
+    private volatile List<Long> localServerIds = List.of();
+    private boolean checkingNotFound;
+
+    public HeartbeatService(MediaServerApiClient api) {
+        this.api = api;
+    }
+
+    public static synchronized HeartbeatService shared() {
+        if (shared == null) {
+            shared = new HeartbeatService(MediaServerApiClient.shared());
+        }
+        return shared;
+    }
+
+    // Con el mismo token no se reinicia, tampoco si el backend ya desactivó los heartbeats
+    public synchronized void start(String token) {
+        if (token.equals(this.token)) {
+            return;
+        }
+        endSession();
+        this.token = token;
+        long started = generation;
+        api.listServers(token).thenAccept(servers -> updateServers(started, servers));
+        task = scheduler.scheduleAtFixedRate(this::beat, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+        logger.info("Heartbeat iniciado cada {} s", INTERVAL_SECONDS);
+    }
+
+    // Token renovado: se sigue latiendo con él sin reiniciar, así las claves no desaparecen ni un momento
+    public synchronized void setToken(String token) {
+        if (this.token != null) {
+            this.token = token;
+        }
+    }
+
+    // Fin de sesión: además de los heartbeats se retiran las claves que autorizan el acceso al medio
+    public synchronized void endSession() {
+        cancelBeats();
+        token = null;
+        generation++;
+        localServerIds = List.of();
+        StreamKeyRegistry.shared().setKeys(List.of());
+    }
+
+    private synchronized void updateServers(long requested, List<ServerResponse> servers) {
+        if (requested == generation) {
+            updateServers(servers);
+        }
+    }
+
+    private synchronized void cancelBeats() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            logger.info("Heartbeat detenido");
+        }
+    }
+
+    // Solo late por los servidores registrados desde esta máquina
+    // y con sus claves se autoriza el acceso al servidor multimedia embebido. Sin sesión no hace nada
+    public synchronized void updateServers(List<ServerResponse> servers) {
+        if (token == null) {
+            return;
+        }
+        List<ServerResponse> local = servers.stream()
+                .filter(LocalServer::isLocal)
+                .toList();
+        localServerIds = local.stream().map(ServerResponse::getId).toList();
+        StreamKeyRegistry.shared().setKeys(local.stream().map(ServerResponse::getStreamKey).toList());
+    }
+
+    private void beat() {
+        String currentToken;
+        long current;
+        synchronized (this) {
+            currentToken = token;
+            current = generation;
+        }
+        if (currentToken == null) {
+            return;
+        }
+        for (Long id : localServerIds) {
+            api.heartbeat(currentToken, id).whenComplete((ignored, error) -> {
+                if (error == null) {
+                    return;
+                }
+                Throwable cause = MediaServerApiClient.unwrap(error);
+                if (cause instanceof ApiException apiError && apiError.getCode() == 404) {
+                    onNotFound(currentToken, current, id);
+                } else {
+                    logger.debug("Heartbeat fallido para el servidor {}: {}", id, cause.getMessage());
+                }
+            });
+        }
+    }
+
+    // Un 404 puede ser solo que el servidor se borró desde otro cliente: se pide la lista antes de decidir.
+    // Si sigue existiendo, lo que falta es el endpoint de heartbeat
+    private synchronized void onNotFound(String token, long requested, long id) {
+        if (requested != generation || checkingNotFound) {
+            return;
+        }
+        checkingNotFound = true;
+        api.listServers(token).whenComplete((servers, error) -> {
+            synchronized (this) {
+                checkingNotFound = false;
+                if (requested != generation) {
+                    return;
+                }
+                if (error != null) {
+                    logger.debug("No se pudo comprobar el servidor {} tras un 404: {}", id,
+                            MediaServerApiClient.unwrap(error).getMessage());
+                } else if (servers.stream().anyMatch(server -> Long.valueOf(id).equals(server.getId()))) {
+                    // Solo se dejan de enviar: la sesión y las claves de los servidores locales siguen vigentes
+                    logger.info("El backend no admite heartbeats, se desactivan");
+                    cancelBeats();
+                } else {
+                    logger.info("El servidor {} ya no existe, se deja de latir por él", id);
+                    updateServers(servers);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+
+public class HttpException extends IOException {
+    private final int status;
+
+    public HttpException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() { return status; }
+}
@@ -0,0 +1,83 @@
+package com.miapp.mediaserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma log-lineal al estilo HDR, en microsegundos: 32 subcubetas por potencia de dos, error relativo
+// por debajo del 3 % entre 1 µs y ~50 días. Registrar es un incremento atómico, sin candados ni memoria nueva.
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 36;
+    private static final int BUCKETS = (2 + MAX_SHIFT) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1_000);
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sumMicros.add(value);
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    // Por debajo de 64 µs cada valor tiene su cubeta; por encima, 32 cubetas por cada potencia de dos
+    static int indexOf(long value) {
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value) - SUB_BITS, MAX_SHIFT);
+        int sub = (int) Math.min(value >>> shift, 2 * SUB_COUNT - 1) - SUB_COUNT;
+        return 2 * SUB_COUNT + (shift - 1) * SUB_COUNT + sub;
+    }
+
+    // Mayor valor que cae en la cubeta: el percentil nunca se informa por debajo de lo medido
+    static long highestValueIn(int index) {
+        if (index < 2 * SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - 2 * SUB_COUNT) / SUB_COUNT + 1;
+        long low = (long) (SUB_COUNT + (index - 2 * SUB_COUNT) % SUB_COUNT) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(total, sumMicros.sum(), maxMicros.get(), copy);
+    }
+
+    public record Snapshot(long count, long sumMicros, long maxMicros, long[] counts) {
+
+        // Muestras hasta cada límite (en µs, ascendentes), como las cubetas acumuladas de Prometheus. Una cubeta
+        // fina que cruza un límite cuenta en el siguiente: la latencia nunca se informa por debajo de lo medido
+        public long[] cumulativeCounts(long[] boundsMicros) {
+            long[] cumulative = new long[boundsMicros.length];
+            long seen = 0;
+            int bound = 0;
+            for (int i = 0; i < counts.length && bound < boundsMicros.length; i++) {
+                while (bound < boundsMicros.length && highestValueIn(i) > boundsMicros[bound]) {
+                    cumulative[bound++] = seen;
+                }
+                seen += counts[i];
+            }
+            while (bound < boundsMicros.length) {
+                cumulative[bound++] = seen;
+            }
+            return cumulative;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.miapp.mediaserver;
+
+import java.util.Arrays;
+
+// Punto de entrada del jar. No extiende Application, de modo que con --headless no se carga ninguna clase
+// de JavaFX; sin esa opción arranca la aplicación de escritorio como siempre.
+public final class Launcher {
+
+    private Launcher() {
+    }
+
+    public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--headless")) {
+            MediaServerDaemon.main(args);
+        } else {
+            MainApp.main(args);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.miapp.mediaserver;
+
+import java.util.Collection;
+
+public interface LibraryIndexListener {
+    void onIndexLoaded(Collection<MediaEntry> entries);
+    void onEntryUpdated(MediaEntry entry);
+    void onEntryRemoved(MediaEntry entry);
+}
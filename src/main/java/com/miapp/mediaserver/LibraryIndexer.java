@@ -0,0 +1,586 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Índice de la biblioteca: recorrido en paralelo, persistido en disco y actualizado con WatchService
+public class LibraryIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryIndexer.class);
+    private static final String INDEX_FILE = "library.index";
+    private static final int MAGIC = 0x4D4C4931; // "MLI1"
+    private static final int VERSION = 2;
+    private static final long DEBOUNCE_MILLIS = 500;
+    private static final long SAVE_DELAY_MILLIS = 2_000;
+
+    private final MediaLibrary library;
+    private final Path indexFile;
+    private final ForkJoinPool walkers = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "library-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<LibraryIndexListener> listeners = new CopyOnWriteArrayList<>();
+    // Por directorio: su mtime, sus ficheros y sus subdirectorios; solo se toca desde library-index
+    private final Map<Path, DirRecord> directories = new ConcurrentHashMap<>();
+    private final Map<Path, MediaEntry> entries = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+    private final Set<Path> pendingDirectories = new LinkedHashSet<>();
+    private WatchService watchService;
+    private ScheduledFuture<?> pendingRefresh;
+    private ScheduledFuture<?> pendingSave;
+    private boolean rescanPending;
+    private volatile boolean running;
+
+    public LibraryIndexer(MediaLibrary library, Path indexFile) {
+        this.library = library;
+        this.indexFile = indexFile;
+    }
+
+    public static LibraryIndexer forLibrary(MediaLibrary library) {
+        return new LibraryIndexer(library, Paths.get(INDEX_FILE));
+    }
+
+    public void addListener(LibraryIndexListener listener) {
+        listeners.add(listener);
+    }
+
+    public Collection<MediaEntry> getEntries() {
+        return entries.values();
+    }
+
+    public MediaEntry get(Path path) {
+        return entries.get(path);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        executor.execute(this::initialScan);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        executor.shutdownNow();
+        walkers.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error al cerrar el WatchService", e);
+            }
+        }
+    }
+
+    // Arranque: se publica el índice guardado al momento y luego se revalida solo lo que ha cambiado
+    private void initialScan() {
+        long start = System.nanoTime();
+        Map<Path, DirRecord> persisted = load();
+        if (persisted != null) {
+            directories.putAll(persisted);
+            rebuildEntries(persisted).forEach(entry -> entries.put(entry.path(), entry));
+            logger.info("Índice de la biblioteca cargado: {} ficheros", entries.size());
+        }
+        fireLoaded();
+        try {
+            watchService = library.getRoots().isEmpty() ? null
+                    : library.getRoots().get(0).getFileSystem().newWatchService();
+        } catch (IOException e) {
+            logger.warn("WatchService no disponible, el índice no se actualizará en caliente", e);
+        }
+        rescan();
+        logger.info("Biblioteca indexada: {} ficheros en {} directorios ({} ms)",
+                entries.size(), directories.size(), (System.nanoTime() - start) / 1_000_000);
+        if (watchService != null) {
+            Thread watcher = new Thread(this::watchLoop, "library-watch");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    // Recorrido completo reutilizando los directorios cuyo mtime no ha cambiado
+    private void rescan() {
+        Map<Path, DirRecord> previous = new HashMap<>(directories);
+        Map<Path, DirRecord> scanned = new ConcurrentHashMap<>();
+        List<ScanTask> tasks = new ArrayList<>();
+        for (Path root : library.getRoots()) {
+            if (Files.isDirectory(root)) {
+                tasks.add(new ScanTask(root, root, previous, scanned));
+            }
+        }
+        walkers.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        directories.clear();
+        directories.putAll(scanned);
+        applyDiff(rebuildEntries(previous), rebuildEntries(scanned));
+        for (Path dir : scanned.keySet()) {
+            watch(dir);
+        }
+        watchKeys.entrySet().removeIf(watched -> {
+            if (scanned.containsKey(watched.getKey())) {
+                return false;
+            }
+            watched.getValue().cancel();
+            return true;
+        });
+        scheduleSave();
+    }
+
+    // Reindexa un directorio tras un evento; los subdirectorios nuevos se recorren enteros
+    private void refreshDirectory(Path dir) {
+        DirRecord old = directories.get(dir);
+        if (old == null) {
+            return;
+        }
+        Map<Path, DirRecord> previous = new HashMap<>();
+        Map<Path, DirRecord> scanned = new ConcurrentHashMap<>();
+        collectSubtree(dir, previous);
+        if (Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            Path root = rootOf(dir);
+            try {
+                long lastModified = Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).toMillis();
+                scanned.put(dir, list(dir, lastModified, old, root));
+            } catch (IOException e) {
+                logger.debug("No se pudo releer {}: {}", dir, e.getMessage());
+                return;
+            }
+            List<ScanTask> tasks = new ArrayList<>();
+            for (String sub : scanned.get(dir).subdirs()) {
+                Path child = dir.resolve(sub);
+                if (old.subdirs().contains(sub)) {
+                    collectSubtree(child, scanned);
+                } else {
+                    tasks.add(new ScanTask(root, child, Map.of(), scanned));
+                }
+            }
+            walkers.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        previous.keySet().forEach(directories::remove);
+        directories.putAll(scanned);
+        for (Path removed : previous.keySet()) {
+            WatchKey key = scanned.containsKey(removed) ? null : watchKeys.remove(removed);
+            if (key != null) {
+                key.cancel();
+            }
+        }
+        for (Path scannedDir : scanned.keySet()) {
+            watch(scannedDir);
+        }
+        applyDiff(rebuildEntries(previous), rebuildEntries(scanned));
+        scheduleSave();
+    }
+
+    private void collectSubtree(Path dir, Map<Path, DirRecord> into) {
+        DirRecord record = directories.get(dir);
+        if (record == null) {
+            return;
+        }
+        into.put(dir, record);
+        for (String sub : record.subdirs()) {
+            collectSubtree(dir.resolve(sub), into);
+        }
+    }
+
+    private void applyDiff(Collection<MediaEntry> before, Collection<MediaEntry> after) {
+        Map<Path, MediaEntry> old = new HashMap<>();
+        for (MediaEntry entry : before) {
+            old.put(entry.path(), entry);
+        }
+        for (MediaEntry entry : after) {
+            MediaEntry previous = old.remove(entry.path());
+            if (!entry.equals(previous)) {
+                entries.put(entry.path(), entry);
+                fire(listener -> listener.onEntryUpdated(entry));
+            }
+        }
+        for (MediaEntry removed : old.values()) {
+            entries.remove(removed.path());
+            fire(listener -> listener.onEntryRemoved(removed));
+        }
+    }
+
+    private List<MediaEntry> rebuildEntries(Map<Path, DirRecord> records) {
+        List<MediaEntry> result = new ArrayList<>();
+        for (DirRecord record : records.values()) {
+            result.addAll(record.files());
+        }
+        return result;
+    }
+
+    private Path rootOf(Path path) {
+        for (Path root : library.getRoots()) {
+            if (path.startsWith(root)) {
+                return root;
+            }
+        }
+        return path;
+    }
+
+    // Lista un directorio; los ficheros con mismo tamaño y mtime conservan los datos ya extraídos
+    private static DirRecord list(Path dir, long lastModified, DirRecord previous, Path root) throws IOException {
+        Map<Path, MediaEntry> known = new HashMap<>();
+        if (previous != null) {
+            for (MediaEntry entry : previous.files()) {
+                known.put(entry.path(), entry);
+            }
+        }
+        List<MediaEntry> files = new ArrayList<>();
+        List<String> subdirs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    // Los directorios ocultos (p. ej. .uploads, las subidas a medias) no son biblioteca
+                    if (!child.getFileName().toString().startsWith(".")) {
+                        subdirs.add(child.getFileName().toString());
+                    }
+                    continue;
+                }
+                String container = attributes.isRegularFile() ? MediaProbe.container(child) : null;
+                if (container == null) {
+                    continue;
+                }
+                long size = attributes.size();
+                long mtime = attributes.lastModifiedTime().toMillis();
+                MediaEntry entry = known.get(child);
+                if (entry == null || !entry.sameFile(size, mtime)) {
+                    entry = new MediaEntry(child, relativize(root, child), size, mtime, container,
+                            MetadataService.shared().get(child, mtime, container));
+                }
+                files.add(entry);
+            }
+        }
+        return new DirRecord(lastModified, List.copyOf(files), List.copyOf(subdirs));
+    }
+
+    // Misma lista de nombres; solo se vuelven a extraer los ficheros con otro tamaño o mtime
+    private static DirRecord revalidate(DirRecord known) throws IOException {
+        List<MediaEntry> files = null;
+        for (int i = 0; i < known.files().size(); i++) {
+            MediaEntry entry = known.files().get(i);
+            MediaEntry current;
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(entry.path(), BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                long size = attributes.size();
+                long mtime = attributes.lastModifiedTime().toMillis();
+                current = entry.sameFile(size, mtime) ? entry
+                        : new MediaEntry(entry.path(), entry.relativePath(), size, mtime, entry.container(),
+                                MetadataService.shared().get(entry.path(), mtime, entry.container()));
+            } catch (NoSuchFileException e) {
+                current = null;
+            }
+            if (current != entry && files == null) {
+                files = new ArrayList<>(known.files().subList(0, i));
+            }
+            if (files != null && current != null) {
+                files.add(current);
+            }
+        }
+        return files == null ? known : new DirRecord(known.lastModified(), List.copyOf(files), known.subdirs());
+    }
+
+    private static String relativize(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private void watch(Path dir) {
+        if (watchService == null || watchKeys.containsKey(dir)) {
+            return;
+        }
+        try {
+            watchKeys.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+        } catch (IOException e) {
+            logger.debug("No se pudo vigilar {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            // Cualquier evento se resuelve releyendo el directorio que lo emite
+            Path dir = (Path) key.watchable();
+            Set<Path> changed = new HashSet<>();
+            boolean overflow = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                } else {
+                    changed.add(dir);
+                }
+            }
+            if (!key.reset()) {
+                watchKeys.remove(dir);
+                changed.add(dir.getParent() != null && directories.containsKey(dir.getParent())
+                        ? dir.getParent() : dir);
+            }
+            schedule(changed, overflow);
+        }
+    }
+
+    // Agrupa ráfagas de eventos (copias en curso, descompresiones) en una sola pasada
+    private synchronized void schedule(Set<Path> changed, boolean overflow) {
+        pendingDirectories.addAll(changed);
+        rescanPending |= overflow;
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+        }
+        pendingRefresh = executor.schedule(this::processPending, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void processPending() {
+        List<Path> dirs;
+        boolean overflow;
+        synchronized (this) {
+            dirs = new ArrayList<>(pendingDirectories);
+            overflow = rescanPending;
+            pendingDirectories.clear();
+            rescanPending = false;
+        }
+        try {
+            if (overflow) {
+                logger.info("Desbordamiento de eventos en la biblioteca, revalidando por mtime");
+                rescan();
+                return;
+            }
+            for (Path dir : dirs) {
+                refreshDirectory(dir);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error al actualizar el índice de la biblioteca", e);
+        }
+    }
+
+    private void fireLoaded() {
+        List<MediaEntry> snapshot = List.copyOf(entries.values());
+        fire(listener -> listener.onIndexLoaded(snapshot));
+    }
+
+    private void fire(Consumer<LibraryIndexListener> event) {
+        for (LibraryIndexListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                logger.error("Error en un oyente del índice de la biblioteca", e);
+            }
+        }
+    }
+
+    private synchronized void scheduleSave() {
+        if (pendingSave == null || pendingSave.isDone()) {
+            pendingSave = executor.schedule(this::save, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Map<Path, DirRecord> load() {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Índice de la biblioteca con formato desconocido, se ignora: {}", indexFile);
+                return null;
+            }
+            int rootCount = in.readInt();
+            List<Path> roots = new ArrayList<>(rootCount);
+            for (int i = 0; i < rootCount; i++) {
+                roots.add(Paths.get(in.readUTF()));
+            }
+            if (!roots.equals(library.getRoots())) {
+                logger.info("Las raíces de la biblioteca han cambiado, se reindexa desde cero");
+                return null;
+            }
+            int dirCount = in.readInt();
+            Map<Path, DirRecord> records = new HashMap<>(dirCount * 2);
+            for (int i = 0; i < dirCount; i++) {
+                Path dir = Paths.get(in.readUTF());
+                Path root = rootOf(dir);
+                long lastModified = in.readLong();
+                int subdirCount = in.readInt();
+                List<String> subdirs = new ArrayList<>(subdirCount);
+                for (int j = 0; j < subdirCount; j++) {
+                    subdirs.add(in.readUTF());
+                }
+                int fileCount = in.readInt();
+                List<MediaEntry> files = new ArrayList<>(fileCount);
+                for (int j = 0; j < fileCount; j++) {
+                    Path file = dir.resolve(in.readUTF());
+                    files.add(new MediaEntry(file, relativize(root, file), in.readLong(), in.readLong(),
+                            in.readUTF(), readMetadata(in)));
+                }
+                records.put(dir, new DirRecord(lastModified, files, subdirs));
+            }
+            return records;
+        } catch (IOException e) {
+            logger.warn("No se pudo leer el índice de la biblioteca {}", indexFile, e);
+            return null;
+        }
+    }
+
+    private void save() {
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(library.getRoots().size());
+            for (Path root : library.getRoots()) {
+                out.writeUTF(root.toString());
+            }
+            Map<Path, DirRecord> snapshot = new HashMap<>(directories);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<Path, DirRecord> dir : snapshot.entrySet()) {
+                DirRecord record = dir.getValue();
+                out.writeUTF(dir.getKey().toString());
+                out.writeLong(record.lastModified());
+                out.writeInt(record.subdirs().size());
+                for (String sub : record.subdirs()) {
+                    out.writeUTF(sub);
+                }
+                out.writeInt(record.files().size());
+                for (MediaEntry entry : record.files()) {
+                    out.writeUTF(entry.path().getFileName().toString());
+                    out.writeLong(entry.size());
+                    out.writeLong(entry.lastModified());
+                    out.writeUTF(entry.container());
+                    writeMetadata(out, entry.metadata());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudo escribir el índice de la biblioteca {}", indexFile, e);
+            return;
+        }
+        try {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("No se pudo reemplazar el índice de la biblioteca {}", indexFile, e);
+        }
+    }
+
+    private static void writeMetadata(DataOutputStream out, MediaMetadata metadata) throws IOException {
+        out.writeLong(metadata.durationMillis());
+        writeNullable(out, metadata.videoCodec());
+        writeNullable(out, metadata.audioCodec());
+        out.writeInt(metadata.width());
+        out.writeInt(metadata.height());
+        writeNullable(out, metadata.title());
+        writeNullable(out, metadata.artist());
+    }
+
+    private static MediaMetadata readMetadata(DataInputStream in) throws IOException {
+        return new MediaMetadata(in.readLong(), readNullable(in), readNullable(in), in.readInt(), in.readInt(),
+                readNullable(in), readNullable(in));
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private record DirRecord(long lastModified, List<MediaEntry> files, List<String> subdirs) {
+    }
+
+    // Con el mtime del directorio igual no ha habido altas, bajas ni renombrados: no se relista,
+    // pero cada fichero se comprueba igualmente porque reescribirlo en su sitio no cambia el directorio
+    private static final class ScanTask extends RecursiveAction {
+        private final Path root;
+        private final Path dir;
+        private final Map<Path, DirRecord> previous;
+        private final Map<Path, DirRecord> scanned;
+
+        ScanTask(Path root, Path dir, Map<Path, DirRecord> previous, Map<Path, DirRecord> scanned) {
+            this.root = root;
+            this.dir = dir;
+            this.previous = previous;
+            this.scanned = scanned;
+        }
+
+        @Override
+        protected void compute() {
+            DirRecord record;
+            try {
+                long lastModified = Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).toMillis();
+                DirRecord known = previous.get(dir);
+                record = known != null && known.lastModified() == lastModified
+                        ? revalidate(known) : list(dir, lastModified, known, root);
+            } catch (IOException e) {
+                logger.debug("No se pudo indexar {}: {}", dir, e.getMessage());
+                return;
+            }
+            scanned.put(dir, record);
+            List<ScanTask> children = new ArrayList<>(record.subdirs().size());
+            for (String sub : record.subdirs()) {
+                children.add(new ScanTask(root, dir.resolve(sub), previous, scanned));
+            }
+            invokeAll(children);
+        }
+    }
+}
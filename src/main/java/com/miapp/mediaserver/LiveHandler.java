@@ -0,0 +1,131 @@
+package com.miapp.mediaserver;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+// POST/PUT /live/ingest?key=<clave>: recibe MPEG-TS (chunked o con Content-Length) y lo segmenta en memoria.
+// GET /live/<id>/index.m3u8 y /live/<id>/<n>.ts: reproducción HLS de los últimos segmentos.
+public class LiveHandler implements RouteHandler {
+
+    public static final String PREFIX = "/live/";
+    private static final String INGEST_PATH = PREFIX + "ingest";
+    private static final String PLAYLIST = "index.m3u8";
+
+    private final LiveStreamRegistry streams;
+    private final StreamKeyRegistry streamKeys;
+    private final BandwidthShaper shaper;
+
+    public LiveHandler(LiveStreamRegistry streams, StreamKeyRegistry streamKeys, BandwidthShaper shaper) {
+        this.streams = streams;
+        this.streamKeys = streamKeys;
+        this.shaper = shaper;
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        String key = authorize(request);
+        if (request.getPath().equals(INGEST_PATH)) {
+            if (!"POST".equals(request.getMethod()) && !"PUT".equals(request.getMethod())) {
+                response.setHeader("Allow", "POST, PUT");
+                throw new HttpException(405, "Método no permitido");
+            }
+            ingest(key, request, response);
+            return;
+        }
+        if (!"GET".equals(request.getMethod()) && !request.isHead()) {
+            response.setHeader("Allow", "GET, HEAD");
+            throw new HttpException(405, "Método no permitido");
+        }
+        String rest = request.getPath().substring(PREFIX.length());
+        int slash = rest.indexOf('/');
+        LiveStream stream = slash > 0 ? streams.get(rest.substring(0, slash)) : null;
+        if (stream == null) {
+            throw new HttpException(404, "Emisión no encontrada");
+        }
+        String name = rest.substring(slash + 1);
+        if (name.equals(PLAYLIST)) {
+            String keyParam = "?" + StreamKeyRegistry.QUERY_PARAM + "=" + URLEncoder.encode(key, StandardCharsets.UTF_8);
+            response.setHeader("Content-Type", "application/vnd.apple.mpegurl");
+            response.setHeader("Cache-Control", "no-cache");
+            response.send(200, stream.playlist(keyParam).getBytes(StandardCharsets.UTF_8));
+        } else if (name.endsWith(".ts")) {
+            serveSegment(stream, name.substring(0, name.length() - 3), key, request, response);
+        } else {
+            throw new HttpException(404, "No encontrado");
+        }
+    }
+
+    private void ingest(String key, MediaRequest request, MediaResponse response) throws IOException {
+        LiveStream stream = streams.beginIngest(key);
+        if (stream == null) {
+            throw new HttpException(409, "Ya hay una emisión en curso con esta clave");
+        }
+        // Quien emite no reutiliza la conexión: al terminar se cierra
+        response.setKeepAlive(false);
+        long packets = 0;
+        try {
+            InputStream in = new BufferedInputStream(request.getBody(), 64 * 1024);
+            byte[] packet = new byte[TsPacketParser.PACKET_SIZE];
+            while (readPacket(in, packet)) {
+                stream.append(packet);
+                packets++;
+            }
+        } catch (EOFException e) {
+            // El emisor cortó a mitad de paquete o de bloque: se da la emisión por terminada
+        } finally {
+            streams.endIngest(stream);
+        }
+        response.sendText(200, "Emisión recibida: " + packets + " paquetes");
+    }
+
+    // Lee un paquete completo; si se pierde la sincronía se salta hasta el siguiente byte 0x47
+    private static boolean readPacket(InputStream in, byte[] packet) throws IOException {
+        int b;
+        while ((b = in.read()) != TsPacketParser.SYNC_BYTE) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        packet[0] = (byte) b;
+        return in.readNBytes(packet, 1, packet.length - 1) == packet.length - 1;
+    }
+
+    private void serveSegment(LiveStream stream, String sequence, String key, MediaRequest request,
+                              MediaResponse response) throws IOException {
+        LiveStream.Segment segment;
+        try {
+            segment = stream.segment(Long.parseLong(sequence));
+        } catch (NumberFormatException e) {
+            segment = null;
+        }
+        if (segment == null || !stream.isAvailable(segment)) {
+            throw new HttpException(404, "Segmento no disponible");
+        }
+        response.setHeader("Content-Type", "video/mp2t");
+        // Un segmento no cambia nunca una vez cerrado
+        response.setHeader("Cache-Control", "private, max-age=60");
+        response.setStatus(200);
+        response.sendHeaders(segment.length());
+        if (!request.isHead()) {
+            try (BandwidthShaper.Stream quota = shaper.open(key)) {
+                response.setShaper(quota);
+                stream.send(segment, response);
+            }
+        }
+    }
+
+    private String authorize(MediaRequest request) throws HttpException {
+        String key = StreamKeyRegistry.keyOf(request);
+        if (key == null) {
+            throw new HttpException(401, "Falta la clave de emisión");
+        }
+        if (!streamKeys.isValid(key)) {
+            throw new HttpException(403, "Clave de emisión no válida");
+        }
+        return key;
+    }
+}
@@ -0,0 +1,216 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+
+// Emisión en directo: los paquetes TS se escriben en un búfer circular fuera del heap, reservado una
+// sola vez, y se cortan en segmentos HLS por fotograma clave. Cada segmento es un tramo [start, end)
+// de un registro de bytes con offsets crecientes; lo que ya se ha sobrescrito queda por debajo de evictedBefore.
+public class LiveStream {
+
+    private static final long PTS_MASK = (1L << 33) - 1;
+    private static final int SEND_SLICE = 64 * 1024;
+
+    private final String id;
+    private final ByteBuffer ring;
+    private final int capacity;
+    private final int maxSegments;
+    private final long targetMillis;
+    private final long maxSegmentBytes;
+    private final TsPacketParser parser = new TsPacketParser();
+
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long written;
+    private volatile long evictedBefore;
+    private long nextSequence;
+    private boolean ended = true;
+
+    // Segmento en curso
+    private long segmentStart = -1;
+    private long segmentStartPts = TsPacketParser.NO_PTS;
+    private long segmentStartNanos;
+    private long lastPts = TsPacketParser.NO_PTS;
+
+    public LiveStream(String id, int capacity, int maxSegments, long targetMillis) {
+        this.id = id;
+        this.capacity = capacity;
+        this.maxSegments = maxSegments;
+        this.targetMillis = targetMillis;
+        // Los segmentos retenidos y el que se está escribiendo tienen que caber a la vez en el búfer
+        this.maxSegmentBytes = capacity / (maxSegments + 1);
+        this.ring = ByteBuffer.allocateDirect(capacity);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // Una nueva emisión reutiliza el búfer; la secuencia sigue creciendo para que los reproductores no se líen
+    public synchronized void begin() {
+        segments.clear();
+        evictedBefore = written;
+        segmentStart = -1;
+        lastPts = TsPacketParser.NO_PTS;
+        ended = false;
+    }
+
+    public synchronized void end() {
+        closeSegment(lastPts);
+        ended = true;
+    }
+
+    public synchronized boolean isEnded() {
+        return ended;
+    }
+
+    public void append(byte[] packet) {
+        parser.parse(packet);
+        synchronized (this) {
+            long pts = parser.getPts();
+            if (segmentStart >= 0 && written - segmentStart + 3L * TsPacketParser.PACKET_SIZE > maxSegmentBytes) {
+                // Corte forzado por tamaño: el siguiente sigue sin esperar fotograma clave para no perder
+                // el audio ni el resto del GOP (la lista no declara segmentos independientes)
+                long cutPts = pts != TsPacketParser.NO_PTS ? pts : lastPts;
+                closeSegment(cutPts);
+                openSegment(cutPts);
+            } else if (segmentStart >= 0 && parser.isCutPoint() && elapsedMillis(pts) >= targetMillis) {
+                closeSegment(pts);
+            }
+            if (pts != TsPacketParser.NO_PTS) {
+                lastPts = pts;
+            }
+            if (segmentStart < 0) {
+                if (!parser.isCutPoint()) {
+                    // Hasta el primer fotograma clave no hay nada decodificable
+                    return;
+                }
+                openSegment(pts);
+            }
+            put(packet);
+        }
+    }
+
+    private void openSegment(long pts) {
+        segmentStart = written;
+        segmentStartPts = pts;
+        segmentStartNanos = System.nanoTime();
+        // Cada segmento empieza con PAT y PMT para poder reproducirse por separado
+        if (parser.getPat() != null && parser.getPmt() != null) {
+            put(parser.getPat());
+            put(parser.getPmt());
+        }
+    }
+
+    private long elapsedMillis(long pts) {
+        if (pts != TsPacketParser.NO_PTS && segmentStartPts != TsPacketParser.NO_PTS) {
+            return ((pts - segmentStartPts) & PTS_MASK) / 90;
+        }
+        return (System.nanoTime() - segmentStartNanos) / 1_000_000;
+    }
+
+    private void closeSegment(long pts) {
+        if (segmentStart < 0 || written == segmentStart) {
+            segmentStart = -1;
+            return;
+        }
+        segments.addLast(new Segment(nextSequence++, segmentStart, written, Math.max(1, elapsedMillis(pts))));
+        while (segments.size() > maxSegments) {
+            segments.removeFirst();
+        }
+        segmentStart = -1;
+    }
+
+    private void put(byte[] data) {
+        long end = written + data.length;
+        // Se anuncia la sobrescritura antes de hacerla: los lectores comprueban evictedBefore al terminar
+        if (end - capacity > evictedBefore) {
+            evictedBefore = end - capacity;
+            Iterator<Segment> it = segments.iterator();
+            while (it.hasNext() && it.next().start() < evictedBefore) {
+                it.remove();
+            }
+            // La escritura volátil no impide que las del búfer se adelanten a ella: sin esta barrera un
+            // lector podría ver bytes nuevos y todavía el evictedBefore antiguo
+            VarHandle.storeStoreFence();
+        }
+        int position = (int) (written % capacity);
+        int first = Math.min(data.length, capacity - position);
+        ring.put(position, data, 0, first);
+        if (first < data.length) {
+            ring.put(0, data, first, data.length - first);
+        }
+        written = end;
+    }
+
+    // El último segmento se deja fuera de la lista como margen para quien lo esté descargando
+    public synchronized String playlist(String keyParam) {
+        int listed = ended ? segments.size() : Math.max(0, segments.size() - 1);
+        Iterator<Segment> it = segments.descendingIterator();
+        ArrayDeque<Segment> visible = new ArrayDeque<>(listed);
+        while (visible.size() < listed && it.hasNext()) {
+            visible.addFirst(it.next());
+        }
+        long targetSeconds = Math.max(1, (targetMillis + 999) / 1000);
+        for (Segment segment : visible) {
+            targetSeconds = Math.max(targetSeconds, (segment.durationMillis() + 999) / 1000);
+        }
+        StringBuilder m3u8 = new StringBuilder(256);
+        m3u8.append("#EXTM3U\n#EXT-X-VERSION:3\n");
+        m3u8.append("#EXT-X-TARGETDURATION:").append(targetSeconds).append('\n');
+        m3u8.append("#EXT-X-MEDIA-SEQUENCE:").append(visible.isEmpty() ? nextSequence : visible.getFirst().sequence()).append('\n');
+        for (Segment segment : visible) {
+            m3u8.append(String.format(Locale.ROOT, "#EXTINF:%.3f,%n", segment.durationMillis() / 1000.0));
+            m3u8.append(segment.sequence()).append(".ts").append(keyParam).append('\n');
+        }
+        if (ended) {
+            m3u8.append("#EXT-X-ENDLIST\n");
+        }
+        return m3u8.toString();
+    }
+
+    public synchronized Segment segment(long sequence) {
+        for (Segment segment : segments) {
+            if (segment.sequence() == sequence) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    public boolean isAvailable(Segment segment) {
+        return segment.start() >= evictedBefore;
+    }
+
+    // Cada tramo se copia fuera del búfer y se comprueba antes de enviarlo: si el escritor alcanza el segmento
+    // a mitad de envío se corta la conexión en lugar de mandar bytes de otro segmento ya anunciados en Content-Length.
+    public void send(Segment segment, MediaResponse response) throws IOException {
+        ByteBuffer view = ring.duplicate();
+        ByteBuffer slice = ByteBuffer.allocate((int) Math.min(SEND_SLICE, segment.length()));
+        for (long offset = segment.start(); offset < segment.end(); ) {
+            int position = (int) (offset % capacity);
+            int length = (int) Math.min(Math.min(SEND_SLICE, segment.end() - offset), capacity - position);
+            view.limit(position + length).position(position);
+            slice.clear();
+            slice.put(view).flip();
+            // Igual en el lector: la copia tiene que quedar leída antes de mirar evictedBefore
+            VarHandle.loadLoadFence();
+            // La sobrescritura se anuncia antes de hacerse: si no hay aviso después de copiar, la copia es buena
+            if (!isAvailable(segment)) {
+                throw new IOException("Segmento " + segment.sequence() + " sobrescrito durante el envío");
+            }
+            response.write(slice);
+            offset += length;
+        }
+    }
+
+    public record Segment(long sequence, long start, long end, long durationMillis) {
+
+        public long length() {
+            return end - start;
+        }
+    }
+}
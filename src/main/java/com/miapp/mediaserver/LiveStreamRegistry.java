@@ -0,0 +1,112 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Emisiones en directo por clave. El identificador público se deriva de la clave para no exponerla en las URL.
+// Cada emisión reserva bufferBytes fuera del heap, así que el número de búferes vivos está acotado por maxStreams.
+public class LiveStreamRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveStreamRegistry.class);
+
+    private final int bufferBytes;
+    private final int maxStreams;
+    private final int segments;
+    private final long segmentMillis;
+    private final long lingerMillis;
+    private final Map<String, LiveStream> streams = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> ingesting = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LiveStreamRegistry(int bufferBytes, int maxStreams, int segments, long segmentMillis, long lingerMillis) {
+        this.bufferBytes = bufferBytes;
+        this.maxStreams = maxStreams;
+        this.segments = segments;
+        this.segmentMillis = segmentMillis;
+        this.lingerMillis = lingerMillis;
+    }
+
+    public static LiveStreamRegistry fromConfig(ServerConfig config) {
+        return new LiveStreamRegistry(config.getInt("live.bufferBytes", 32 * 1024 * 1024),
+                config.getInt("live.maxStreams", 8),
+                config.getInt("live.segments", 6),
+                config.getLong("live.segmentSeconds", 2) * 1000,
+                config.getLong("live.lingerSeconds", 60) * 1000);
+    }
+
+    public static String idFor(String streamKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(streamKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Devuelve null si ya hay una emisión en curso con esa clave
+    public LiveStream beginIngest(String streamKey) throws HttpException {
+        String id = idFor(streamKey);
+        if (ingesting.putIfAbsent(id, Boolean.TRUE) != null) {
+            return null;
+        }
+        LiveStream stream;
+        synchronized (streams) {
+            stream = streams.get(id);
+            if (stream == null) {
+                if (streams.size() >= maxStreams && !evictLingering()) {
+                    ingesting.remove(id);
+                    throw new HttpException(503, "Demasiadas emisiones en directo");
+                }
+                stream = new LiveStream(id, bufferBytes, segments, segmentMillis);
+                streams.put(id, stream);
+            }
+        }
+        stream.begin();
+        logger.info("Emisión en directo iniciada: /live/{}/index.m3u8", id);
+        return stream;
+    }
+
+    // El búfer se conserva un rato por si el emisor reconecta; después se libera
+    public void endIngest(LiveStream stream) {
+        stream.end();
+        ingesting.remove(stream.getId());
+        logger.info("Emisión en directo finalizada: {}", stream.getId());
+        cleaner.schedule(() -> streams.computeIfPresent(stream.getId(),
+                (id, current) -> current == stream && !ingesting.containsKey(id) ? null : current),
+                lingerMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Hace sitio liberando el búfer de una emisión ya terminada que aún se conservaba por si el emisor volvía
+    private boolean evictLingering() {
+        for (String id : streams.keySet()) {
+            if (!ingesting.containsKey(id) && streams.remove(id) != null) {
+                logger.info("Búfer de la emisión {} liberado antes de tiempo para admitir otra", id);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public LiveStream get(String id) {
+        return streams.get(id);
+    }
+
+    public void stop() {
+        cleaner.shutdownNow();
+        streams.clear();
+    }
+}
@@ -0,0 +1,38 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+public final class LocalServer {
+
+    private static volatile String advertisedAddress;
+    private static volatile int advertisedPort = -1;
+
+    private LocalServer() {
+    }
+
+    // El modo sin interfaz anuncia la dirección y el puerto reales en los que escucha
+    public static void advertise(String address, int port) {
+        advertisedAddress = address;
+        advertisedPort = port;
+    }
+
+    // Puerto del servidor multimedia embebido, el que se anuncia al registrar esta máquina
+    public static int port() {
+        int port = advertisedPort;
+        return port >= 0 ? port : ServerConfig.shared().mediaPort();
+    }
+
+    public static String address() throws IOException {
+        String address = advertisedAddress;
+        return address != null ? address : InetAddress.getLocalHost().getHostAddress();
+    }
+
+    public static boolean isLocal(ServerResponse server) {
+        try {
+            return server.getPort() == port() && address().equals(server.getIpAddress());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -2,13 +2,7 @@ package com.miapp.mediaserver;
 
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,28 +10,98 @@ import java.awt.*;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
 public class MainApp extends Application {
 
     private static final Logger logger = LoggerFactory.getLogger(MainApp.class);
-    private static final String BASE_URL = "http://localhost:8080/api/auth";
     private static final String TOKEN_FILE = "token.txt";
-    private final OkHttpClient client = new OkHttpClient();
+    private final MediaServerApiClient api = MediaServerApiClient.shared();
+    private final AuthSession session = AuthSession.shared();
+    private FxStallMonitor stallMonitor;
     private TrayIcon trayIcon;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        StartupTimeline timeline = new StartupTimeline();
         Platform.setImplicitExit(false);
         logger.info("Iniciando MediaServer...");
+        Navigator.init(primaryStage);
+        session.addTokenListener(this::onTokenRefreshed);
+        CompletableFuture.runAsync(timeline.timed("media-server", MediaServerRuntime::start));
+        if (ServerConfig.shared().getBoolean("metrics.enabled", true)) {
+            stallMonitor = FxStallMonitor.fromConfig(ServerConfig.shared(), Platform::runLater);
+            stallMonitor.start();
+        }
 
-        if (checkSavedToken(primaryStage)) {
-            logger.info("Sesión mantenida, mostrando MainMenu.fxml");
-            return;
+        // Precalentamiento en paralelo mientras se muestra la primera pantalla
+        CompletableFuture<Void> warmUp = CompletableFuture.allOf(
+                CompletableFuture.runAsync(timeline.timed("jackson", api::warmUpMapper)),
+                CompletableFuture.runAsync(timeline.timed("fxml", () -> Navigator.preload(
+                        Screen.WELCOME, Screen.MAIN_MENU, Screen.SERVER_REGISTRATION))),
+                timeline.track("http-pool", api.warmUpConnection()));
+
+        String token = readSavedToken();
+        CompletableFuture<Void> validation;
+        if (token == null) {
+            showWelcome(primaryStage);
+            validation = CompletableFuture.completedFuture(null);
+        } else {
+            validation = startOptimistically(token, primaryStage, timeline);
         }
+        timeline.mark("primera-pantalla");
+        CompletableFuture.allOf(warmUp, validation).whenComplete((ignored, error) -> timeline.log());
+    }
 
-        Parent root = FXMLLoader.load(getClass().getResource("/fxml/Welcome.fxml"));
-        primaryStage.setTitle("MediaServer");
-        primaryStage.setScene(new Scene(root, 400, 300));
+    @Override
+    public void stop() {
+        if (stallMonitor != null) {
+            stallMonitor.stop();
+        }
+        MediaServerRuntime.stop();
+    }
+
+    // Con sesión guardada se muestra el menú sin esperar al backend
+    private CompletableFuture<Void> startOptimistically(String token, Stage primaryStage, StartupTimeline timeline)
+            throws IOException {
+        logger.info("Mostrando MainMenu.fxml mientras se valida el token en segundo plano");
+        loadMainMenu(token, primaryStage);
+        return timeline.track("validacion-token", session.validate(token)).handle((valid, error) -> {
+            if (error != null) {
+                // Sin backend no se puede decidir: se mantiene la sesión y se comprobará en la próxima llamada
+                logger.warn("No se pudo validar el token, se mantiene la sesión");
+                session.start(token);
+                return null;
+            }
+            if (valid) {
+                logger.info("Sesión mantenida, token válido");
+                session.start(token);
+                return null;
+            }
+            logger.warn("Token inválido, volviendo a la pantalla de bienvenida");
+            session.end();
+            HeartbeatService.shared().endSession();
+            ServerCatalogCache.shared().delete();
+            Navigator.get().endSession();
+            try {
+                showWelcome(primaryStage);
+            } catch (IOException e) {
+                logger.error("Error al cargar Welcome.fxml", e);
+            }
+            return null;
+        });
+    }
+
+    // AuthSession ya guardó el token renovado; lo adoptan la navegación y el heartbeat
+    private void onTokenRefreshed(String token) {
+        if (Navigator.get().getToken() != null) {
+            Navigator.get().setToken(token);
+            HeartbeatService.shared().setToken(token);
+        }
+    }
+
+    private void showWelcome(Stage primaryStage) throws IOException {
+        Navigator.get().show(Screen.WELCOME);
 
         primaryStage.setOnCloseRequest(event -> {
             event.consume();
@@ -47,54 +111,29 @@ public class MainApp extends Application {
         primaryStage.show();
     }
 
-    private boolean checkSavedToken(Stage stage) {
+    private String readSavedToken() {
         try {
             if (Files.exists(Paths.get(TOKEN_FILE))) {
                 String token = new String(Files.readAllBytes(Paths.get(TOKEN_FILE))).trim();
                 logger.info("Token leído desde {}: {}", TOKEN_FILE, token);
-                if (!token.isEmpty() && validateToken(token)) {
-                    logger.info("Token válido, cargando MainMenu.fxml");
-                    loadMainMenu(token, stage);
-                    return true;
-                } else {
-                    logger.warn("Token inválido, pero no se eliminará para depuración");
+                if (!token.isEmpty()) {
+                    return token;
                 }
             } else {
                 logger.info("No se encontró el archivo de token: {}", TOKEN_FILE);
             }
             logger.info("No hay token válido, mostrando pantalla de bienvenida");
-            return false;
+            return null;
         } catch (IOException e) {
             logger.error("Error al leer el token guardado", e);
-            return false;
-        }
-    }
-
-    private boolean validateToken(String token) {
-        Request request = new Request.Builder()
-                .url(BASE_URL + "/servers")
-                .header("Authorization", "Bearer " + token)
-                .get()
-                .build();
-        try (Response response = client.newCall(request).execute()) {
-            logger.info("Validación del token, código de respuesta: {}", response.code());
-            if (!response.isSuccessful() && response.body() != null) {
-                logger.warn("Cuerpo de la respuesta: {}", response.body().string());
-            }
-            return response.isSuccessful();
-        } catch (IOException e) {
-            logger.warn("Token inválido o error de conexión", e);
-            return false;
+            return null;
         }
     }
 
     private void loadMainMenu(String token, Stage stage) throws IOException {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/MainMenu.fxml"));
-        Parent root = loader.load();
-        MainMenuController controller = loader.getController();
-        controller.setToken(token);
-        stage.setScene(new Scene(root, 400, 300));
-        stage.setTitle("MediaServer - Menú Principal");
+        Navigator navigator = Navigator.get();
+        navigator.setToken(token);
+        navigator.show(Screen.MAIN_MENU);
         stage.show();
     }
 
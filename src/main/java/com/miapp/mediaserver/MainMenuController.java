@@ -2,15 +2,8 @@ package com.miapp.mediaserver;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.stage.Stage;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,11 +11,10 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 
-public class MainMenuController {
+public class MainMenuController implements ScreenController {
     private static final Logger logger = LoggerFactory.getLogger(MainMenuController.class);
-    private static final String BASE_URL = "http://localhost:8080/api/auth";
     private static final String TOKEN_FILE = "token.txt";
-    private final OkHttpClient client = new OkHttpClient();
+    private final MediaServerApiClient api = MediaServerApiClient.shared();
 
     private String token;
     private TrayIcon trayIcon;
@@ -31,29 +23,17 @@ public class MainMenuController {
     @FXML private Button exitButton;
     @FXML private Button logoutButton;
 
-    public void setToken(String token) {
+    @Override
+    public void onActivate(String token) {
         this.token = token;
+        HeartbeatService.shared().start(token);
     }
 
     @FXML
     private void handleServers() {
         logger.info("Abriendo pestaña de configuración de servidores");
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/ServerRegistration.fxml"));
-            if (loader.getLocation() == null) {
-                logger.error("No se pudo encontrar ServerRegistration.fxml en /fxml/ServerRegistration.fxml");
-                return;
-            }
-            Parent root = loader.load();
-            ServerRegistrationController controller = loader.getController();
-            if (controller == null) {
-                logger.error("El controlador de ServerRegistration.fxml es null");
-                return;
-            }
-            controller.setToken(token);
-            Stage stage = (Stage) serversButton.getScene().getWindow();
-            stage.setScene(new Scene(root, 400, 400));
-            stage.setTitle("MediaServer - Registro de Servidor");
+            Navigator.get().show(Screen.SERVER_REGISTRATION);
             logger.info("ServerRegistration.fxml mostrado exitosamente");
         } catch (IOException e) {
             logger.error("Error al abrir la pestaña de servidores", e);
@@ -70,29 +50,28 @@ public class MainMenuController {
     @FXML
     private void handleLogout() {
         logger.info("Cerrando sesión y volviendo a la pantalla de inicio");
+        HeartbeatService.shared().endSession();
+        ServerCatalogCache.shared().delete();
+        AuthSession session = AuthSession.shared();
+        if (session.token() != null) {
+            token = session.token();
+        }
+        session.end();
         if (token == null) {
             logger.warn("Token nulo al intentar cerrar sesión");
         } else {
             logger.info("Enviando solicitud de logout con token: {}", token);
-            Request request = new Request.Builder()
-                    .url(BASE_URL + "/logout")
-                    .header("Authorization", "Bearer " + token)
-                    .post(RequestBody.create("", null))
-                    .build();
-
-            try (Response response = client.newCall(request).execute()) {
-                logger.info("Código de respuesta del logout: {}", response.code());
-                if (response.isSuccessful()) {
+            api.logout(token).whenComplete((ignored, error) -> {
+                Throwable cause = error == null ? null : MediaServerApiClient.unwrap(error);
+                if (cause == null) {
                     logger.info("Token invalidado exitosamente en el backend");
+                } else if (cause instanceof ApiException apiError) {
+                    logger.warn("Fallo al invalidar token, código: {}", apiError.getCode());
+                    logger.warn("Mensaje del servidor: {}", apiError.getBody());
                 } else {
-                    logger.warn("Fallo al invalidar token, código: {}", response.code());
-                    if (response.body() != null) {
-                        logger.warn("Mensaje del servidor: {}", response.body().string());
-                    }
+                    logger.error("Error al cerrar sesión en el backend", cause);
                 }
-            } catch (IOException e) {
-                logger.error("Error al cerrar sesión en el backend", e);
-            }
+            });
         }
 
         // Eliminar el token localmente solo al cerrar sesión
@@ -104,12 +83,9 @@ public class MainMenuController {
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/Welcome.fxml"));
-            Parent root = loader.load();
-            Stage stage = (Stage) logoutButton.getScene().getWindow();
-            Scene scene = new Scene(root, 400, 300);
-            stage.setScene(scene);
-            stage.setTitle("MediaServer");
+            Navigator navigator = Navigator.get();
+            navigator.endSession();
+            navigator.show(Screen.WELCOME);
             logger.info("Welcome.fxml cargado exitosamente tras cerrar sesión");
         } catch (IOException e) {
             logger.error("Error al cargar Welcome.fxml", e);
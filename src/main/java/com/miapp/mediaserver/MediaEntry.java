@@ -0,0 +1,17 @@
+package com.miapp.mediaserver;
+
+import java.nio.file.Path;
+
+// Un fichero de la biblioteca con lo extraído de sus cabeceras al indexarlo, para no releerlas al listarlo
+public record MediaEntry(Path path, String relativePath, long size, long lastModified, String container,
+                         MediaMetadata metadata) {
+
+    public boolean sameFile(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+
+    // -1 si no se ha podido determinar
+    public long durationMillis() {
+        return metadata.durationMillis();
+    }
+}
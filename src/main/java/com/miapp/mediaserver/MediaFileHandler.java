@@ -0,0 +1,253 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+
+// GET/HEAD /media/<ruta relativa>: ficheros de la biblioteca con soporte de Range e If-Range
+public class MediaFileHandler implements RouteHandler {
+
+    public static final String PREFIX = "/media/";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("mp4", "video/mp4"), Map.entry("m4v", "video/mp4"), Map.entry("mkv", "video/x-matroska"),
+            Map.entry("webm", "video/webm"), Map.entry("mov", "video/quicktime"), Map.entry("avi", "video/x-msvideo"),
+            Map.entry("ts", "video/mp2t"), Map.entry("m3u8", "application/vnd.apple.mpegurl"),
+            Map.entry("mp3", "audio/mpeg"), Map.entry("m4a", "audio/mp4"), Map.entry("aac", "audio/aac"),
+            Map.entry("flac", "audio/flac"), Map.entry("ogg", "audio/ogg"), Map.entry("wav", "audio/wav"),
+            Map.entry("jpg", "image/jpeg"), Map.entry("jpeg", "image/jpeg"), Map.entry("png", "image/png"),
+            Map.entry("srt", "application/x-subrip"), Map.entry("vtt", "text/vtt"));
+    private static final long[] RANGE_UNSATISFIABLE = new long[0];
+
+    private final MediaLibrary library;
+    private final StreamKeyRegistry streamKeys;
+    private final AdmissionController admission;
+    private final ThumbnailService thumbnails;
+    private final BandwidthShaper shaper;
+    private final BlockCache blockCache;
+    private final ReadAheadScheduler readAhead;
+
+    public MediaFileHandler(MediaLibrary library, StreamKeyRegistry streamKeys, AdmissionController admission,
+                            ThumbnailService thumbnails, BandwidthShaper shaper, BlockCache blockCache,
+                            ReadAheadScheduler readAhead) {
+        this.library = library;
+        this.streamKeys = streamKeys;
+        this.admission = admission;
+        this.thumbnails = thumbnails;
+        this.shaper = shaper;
+        this.blockCache = blockCache;
+        this.readAhead = readAhead;
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        if (!"GET".equals(request.getMethod()) && !request.isHead()) {
+            response.setHeader("Allow", "GET, HEAD");
+            throw new HttpException(405, "Método no permitido");
+        }
+        String key = authorize(request);
+        Path file = library.resolve(request.getPath().substring(PREFIX.length()));
+        if (file == null) {
+            throw new HttpException(404, "No encontrado");
+        }
+        String thumb = request.queryParam("thumb");
+        if (thumb != null) {
+            serveThumbnail(request, response, file, thumb);
+            return;
+        }
+        // HEAD no ocupa plaza: solo las peticiones que envían cuerpo pasan por la admisión
+        AdmissionController.Permit permit = request.isHead() ? null : admission.admit(key, response);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            String etag = etag(size, lastModified);
+            response.setHeader("Accept-Ranges", "bytes");
+            response.setHeader("ETag", etag);
+            response.setHeader("Last-Modified", MediaResponse.httpDate(lastModified));
+            response.setHeader("Content-Type", contentType(file));
+
+            if (etagMatches(request.header("If-None-Match"), etag)) {
+                response.setStatus(304);
+                response.sendHeaders(-1);
+                return;
+            }
+            long[] range = null;
+            String rangeHeader = request.header("Range");
+            if (rangeHeader != null && ifRangeHolds(request.header("If-Range"), etag, lastModified)) {
+                range = parseRange(rangeHeader, size);
+                if (range == RANGE_UNSATISFIABLE) {
+                    response.setHeader("Content-Range", "bytes */" + size);
+                    throw new HttpException(416, "Rango no satisfacible");
+                }
+            }
+            long start = range == null ? 0 : range[0];
+            long length = range == null ? size : range[1] - range[0] + 1;
+            if (range != null) {
+                response.setStatus(206);
+                response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+            }
+            response.sendHeaders(length);
+            if (!request.isHead()) {
+                try (BandwidthShaper.Stream stream = shaper.open(key)) {
+                    response.setShaper(stream);
+                    if (blockCache != null) {
+                        sendCached(key, request, file, size, lastModified, channel, start, length, response);
+                    } else {
+                        response.sendFile(channel, start, length);
+                    }
+                }
+            }
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+        }
+    }
+
+    // Por tramos, para que la lectura anticipada vea el avance del espectador dentro de una misma respuesta
+    private void sendCached(String key, MediaRequest request, Path file, long size, long lastModified,
+                            FileChannel channel, long start, long length, MediaResponse response) throws IOException {
+        ReadAheadScheduler.Session session = readAhead == null ? null
+                : readAhead.session(key, request.getRemoteAddress().getAddress(), file, size, lastModified);
+        long step = session == null ? length : 4L * blockCache.getBlockSize();
+        for (long position = start, end = start + length; position < end; position += step) {
+            long count = Math.min(step, end - position);
+            if (session != null) {
+                session.onRead(position, count);
+            }
+            blockCache.send(file, size, lastModified, channel, position, count, response);
+        }
+    }
+
+    // ?thumb=<lado mayor en px>: miniatura JPEG desde la caché, generándola si hace falta
+    private void serveThumbnail(MediaRequest request, MediaResponse response, Path file, String thumb)
+            throws IOException {
+        int size;
+        try {
+            size = Integer.parseInt(thumb);
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Tamaño de miniatura no válido");
+        }
+        if (!thumbnails.isSupportedSize(size)) {
+            throw new HttpException(400, "Tamaño de miniatura no disponible");
+        }
+        ThumbnailService.Thumbnail thumbnail = thumbnails.get(file, size);
+        response.setHeader("ETag", thumbnail.etag());
+        response.setHeader("Cache-Control", "private, max-age=86400");
+        response.setHeader("Content-Type", "image/jpeg");
+        if (etagMatches(request.header("If-None-Match"), thumbnail.etag())) {
+            response.setStatus(304);
+            response.sendHeaders(-1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(thumbnail.file(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            response.sendHeaders(length);
+            if (!request.isHead()) {
+                response.sendFile(channel, 0, length);
+            }
+        }
+    }
+
+    private String authorize(MediaRequest request) throws HttpException {
+        String key = StreamKeyRegistry.keyOf(request);
+        if (key == null) {
+            throw new HttpException(401, "Falta la clave de emisión");
+        }
+        if (!streamKeys.isValid(key)) {
+            throw new HttpException(403, "Clave de emisión no válida");
+        }
+        return key;
+    }
+
+    // Solo un rango por petición; con varios se responde el fichero completo, como permite la RFC 9110
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Sufijo: los últimos N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return RANGE_UNSATISFIABLE;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (end < start) {
+                    // Rango mal formado: se ignora la cabecera
+                    return null;
+                }
+                end = Math.min(end, size - 1);
+            }
+            if (start >= size || size == 0) {
+                return RANGE_UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // If-Range con ETag fuerte o fecha exacta; si no coincide se envía el fichero completo
+    private static boolean ifRangeHolds(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return date == lastModified / 1000 * 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String etag(long size, long lastModified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+}
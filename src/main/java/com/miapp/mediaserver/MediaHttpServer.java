@@ -0,0 +1,150 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MediaHttpServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaHttpServer.class);
+    private static final int IDLE_TIMEOUT_MILLIS = 30_000;
+
+    private final InetSocketAddress bindAddress;
+    // Ordenadas de mayor a menor para que gane el prefijo más largo
+    private final Map<String, RouteHandler> routes = new ConcurrentSkipListMap<>((a, b) -> {
+        int byLength = Integer.compare(b.length(), a.length());
+        return byLength != 0 ? byLength : a.compareTo(b);
+    });
+    // Un hilo virtual por conexión: miles de espectadores lentos sin un hilo del sistema por cada uno
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("media-http-", 0).factory());
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public MediaHttpServer(InetSocketAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    public void route(String prefix, RouteHandler handler) {
+        routes.put(prefix, handler);
+    }
+
+    public synchronized void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(bindAddress, 128);
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "media-http-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Servidor multimedia escuchando en {}", serverChannel.getLocalAddress());
+    }
+
+    public synchronized void stop() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Error al cerrar el servidor multimedia", e);
+        }
+        workers.shutdownNow();
+    }
+
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return bindAddress.getPort();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                workers.execute(() -> handleConnection(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("Error al aceptar conexión", e);
+                }
+            }
+        }
+    }
+
+    private void handleConnection(SocketChannel channel) {
+        try (channel) {
+            channel.socket().setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            channel.socket().setTcpNoDelay(true);
+            InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+            InputStream in = new BufferedInputStream(channel.socket().getInputStream());
+            boolean keepAlive = true;
+            while (keepAlive && running) {
+                MediaRequest request;
+                try {
+                    request = MediaRequest.read(in, remote);
+                } catch (HttpException e) {
+                    MediaResponse error = new MediaResponse(channel, false, false);
+                    error.sendText(e.getStatus(), e.getMessage());
+                    return;
+                }
+                if (request == null) {
+                    return;
+                }
+                MediaResponse response = new MediaResponse(channel, request.isHead(), request.isKeepAlive());
+                dispatch(request, response);
+                keepAlive = response.isKeepAlive();
+                if (keepAlive) {
+                    request.discardBody();
+                }
+            }
+        } catch (SocketTimeoutException | ClosedChannelException e) {
+            // Conexión inactiva o cerrada por el cliente
+        } catch (IOException e) {
+            logger.debug("Conexión terminada: {}", e.getMessage());
+        }
+    }
+
+    private void dispatch(MediaRequest request, MediaResponse response) throws IOException {
+        RouteHandler handler = null;
+        for (Map.Entry<String, RouteHandler> route : routes.entrySet()) {
+            if (request.getPath().startsWith(route.getKey())) {
+                handler = route.getValue();
+                break;
+            }
+        }
+        try {
+            if (handler == null) {
+                response.sendText(404, "No encontrado");
+            } else {
+                handler.handle(request, response);
+            }
+        } catch (HttpException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.sendText(e.getStatus(), e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error al atender {} {}", request.getMethod(), request.getPath(), e);
+            if (response.isCommitted()) {
+                throw new IOException(e);
+            }
+            response.setKeepAlive(false);
+            response.sendText(500, "Error interno");
+        }
+    }
+}
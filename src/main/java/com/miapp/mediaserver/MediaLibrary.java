@@ -0,0 +1,68 @@
+package com.miapp.mediaserver;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MediaLibrary {
+
+    private final List<Path> roots;
+
+    public MediaLibrary(List<Path> roots) {
+        this.roots = List.copyOf(roots);
+    }
+
+    public List<Path> getRoots() {
+        return roots;
+    }
+
+    // Resuelve una ruta relativa dentro de alguna raíz; nunca sale de ellas (../, rutas absolutas)
+    // ni entra en lo oculto: .uploads guarda las subidas a medias y quién las hace
+    public Path resolve(String relative) {
+        String cleaned = clean(relative);
+        if (cleaned == null) {
+            return null;
+        }
+        for (Path root : roots) {
+            Path candidate = root.resolve(cleaned).normalize();
+            if (candidate.startsWith(root) && !isHidden(root, candidate) && Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // Destino de un fichero nuevo en la primera raíz; null si la ruta sale de ella o apunta a algo oculto
+    public Path resolveTarget(String relative) {
+        String cleaned = clean(relative);
+        if (cleaned == null || roots.isEmpty()) {
+            return null;
+        }
+        Path root = roots.get(0);
+        Path candidate = root.resolve(cleaned).normalize();
+        if (!candidate.startsWith(root) || candidate.equals(root) || isHidden(root, candidate)) {
+            return null;
+        }
+        return candidate;
+    }
+
+    private static boolean isHidden(Path root, Path candidate) {
+        for (Path part : root.relativize(candidate)) {
+            if (part.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String clean(String relative) {
+        String cleaned = relative.replace('\\', '/');
+        while (cleaned.startsWith("/")) {
+            cleaned = cleaned.substring(1);
+        }
+        if (cleaned.isEmpty() || cleaned.indexOf('\0') >= 0) {
+            return null;
+        }
+        return cleaned;
+    }
+}
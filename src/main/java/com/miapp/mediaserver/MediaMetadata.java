@@ -0,0 +1,8 @@
+package com.miapp.mediaserver;
+
+// Lo que se sabe de un fichero sin decodificarlo; los campos desconocidos son null, 0 o -1
+public record MediaMetadata(long durationMillis, String videoCodec, String audioCodec, int width, int height,
+                            String title, String artist) {
+
+    public static final MediaMetadata UNKNOWN = new MediaMetadata(-1, null, null, 0, 0, null, null);
+}
@@ -0,0 +1,26 @@
+package com.miapp.mediaserver;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+// Tipo de contenedor por extensión; los metadatos los extrae MetadataService
+public final class MediaProbe {
+
+    private static final Map<String, String> CONTAINERS = Map.ofEntries(
+            Map.entry("mp4", "mp4"), Map.entry("m4v", "mp4"), Map.entry("m4a", "mp4"), Map.entry("mov", "mp4"),
+            Map.entry("mkv", "matroska"), Map.entry("webm", "matroska"), Map.entry("mka", "matroska"),
+            Map.entry("avi", "avi"), Map.entry("ts", "mpegts"), Map.entry("m2ts", "mpegts"),
+            Map.entry("mp3", "mp3"), Map.entry("aac", "aac"), Map.entry("flac", "flac"),
+            Map.entry("ogg", "ogg"), Map.entry("wav", "wav"));
+
+    private MediaProbe() {
+    }
+
+    // null si la extensión no corresponde a un fichero multimedia
+    public static String container(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : CONTAINERS.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,274 @@
+package com.miapp.mediaserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MediaRequest {
+
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    private static final int MAX_HEADERS = 100;
+
+    private final String method;
+    private final String path;
+    private final String version;
+    private final Map<String, String> query;
+    private final Map<String, String> headers;
+    private final InetSocketAddress remoteAddress;
+    private final InputStream body;
+
+    private MediaRequest(String method, String path, String version, Map<String, String> query,
+                         Map<String, String> headers, InetSocketAddress remoteAddress, InputStream body) {
+        this.method = method;
+        this.path = path;
+        this.version = version;
+        this.query = query;
+        this.headers = headers;
+        this.remoteAddress = remoteAddress;
+        this.body = body;
+    }
+
+    // Devuelve null si el cliente cierra la conexión antes de enviar otra petición
+    public static MediaRequest read(InputStream in, InetSocketAddress remoteAddress) throws IOException {
+        String requestLine = readLine(in);
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3) {
+            throw new HttpException(400, "Línea de petición no válida");
+        }
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0 || headers.size() >= MAX_HEADERS) {
+                throw new HttpException(400, "Cabecera no válida");
+            }
+            headers.merge(line.substring(0, colon).trim(), line.substring(colon + 1).trim(), (a, b) -> a + ", " + b);
+        }
+        if (line == null) {
+            throw new EOFException("Conexión cerrada en mitad de las cabeceras");
+        }
+        String target = parts[1];
+        int question = target.indexOf('?');
+        String rawPath = question < 0 ? target : target.substring(0, question);
+        Map<String, String> query = question < 0 ? Map.of() : parseQuery(target.substring(question + 1));
+        return new MediaRequest(parts[0], decode(rawPath), parts[2], query, headers, remoteAddress,
+                bodyStream(in, headers));
+    }
+
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public String getVersion() { return version; }
+    public InetSocketAddress getRemoteAddress() { return remoteAddress; }
+    public InputStream getBody() { return body; }
+    public Map<String, String> getHeaders() { return Collections.unmodifiableMap(headers); }
+
+    public String header(String name) {
+        return headers.get(name);
+    }
+
+    public String queryParam(String name) {
+        return query.get(name);
+    }
+
+    public boolean isHead() {
+        return "HEAD".equals(method);
+    }
+
+    public boolean isKeepAlive() {
+        String connection = headers.get("Connection");
+        if ("HTTP/1.0".equals(version)) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+        return connection == null || !connection.equalsIgnoreCase("close");
+    }
+
+    public boolean isLoopback() {
+        return remoteAddress != null && remoteAddress.getAddress() != null
+                && remoteAddress.getAddress().isLoopbackAddress();
+    }
+
+    // Consume lo que el manejador no haya leído para poder reutilizar la conexión
+    public void discardBody() throws IOException {
+        body.transferTo(OutputStream.nullOutputStream());
+    }
+
+    private static InputStream bodyStream(InputStream in, Map<String, String> headers) throws IOException {
+        String transferEncoding = headers.get("Transfer-Encoding");
+        if (transferEncoding != null) {
+            if (!transferEncoding.equalsIgnoreCase("chunked")) {
+                throw new HttpException(400, "Transfer-Encoding no soportado");
+            }
+            return new ChunkedInputStream(in);
+        }
+        String length = headers.get("Content-Length");
+        if (length == null) {
+            return InputStream.nullInputStream();
+        }
+        try {
+            return new BoundedInputStream(in, Long.parseLong(length));
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Content-Length no válido");
+        }
+    }
+
+    // Un escape mal formado ("%zz", "%" al final) es un 400, no una excepción que tumbe la conexión
+    private static Map<String, String> parseQuery(String rawQuery) throws HttpException {
+        Map<String, String> query = new HashMap<>();
+        try {
+            for (String pair : rawQuery.split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int equals = pair.indexOf('=');
+                String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+                String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+                query.putIfAbsent(name, value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new HttpException(400, "Consulta no válida");
+        }
+        return query;
+    }
+
+    // En la ruta '+' es un carácter literal, no un espacio
+    private static String decode(String rawPath) throws HttpException {
+        try {
+            return URLDecoder.decode(rawPath.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new HttpException(400, "Ruta no válida");
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            if (line.size() >= MAX_LINE_LENGTH) {
+                throw new HttpException(431, "Línea demasiado larga");
+            }
+            line.write(b);
+        }
+        if (line.size() == 0) {
+            return null;
+        }
+        throw new EOFException("Conexión cerrada en mitad de una línea");
+    }
+
+    // Cuerpo con Transfer-Encoding: chunked, como el que envían los codificadores en directo
+    private static final class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+        private boolean finished;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (remaining == 0 && !nextChunk()) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("Cuerpo troceado incompleto");
+            }
+            remaining -= read;
+            if (remaining == 0) {
+                String end = readLine(in);
+                if (end == null || !end.isEmpty()) {
+                    throw new HttpException(400, "Trozo mal terminado");
+                }
+            }
+            return read;
+        }
+
+        private boolean nextChunk() throws IOException {
+            String line = readLine(in);
+            if (line == null) {
+                throw new EOFException("Cuerpo troceado incompleto");
+            }
+            int extension = line.indexOf(';');
+            try {
+                remaining = Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new HttpException(400, "Tamaño de trozo no válido");
+            }
+            if (remaining < 0) {
+                throw new HttpException(400, "Tamaño de trozo no válido");
+            }
+            if (remaining == 0) {
+                // Se descartan las cabeceras finales
+                String trailer = readLine(in);
+                while (trailer != null && !trailer.isEmpty()) {
+                    trailer = readLine(in);
+                }
+                finished = true;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Cuerpo de la petición incompleto");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("Cuerpo de la petición incompleto");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MediaResponse {
+
+    private static final Map<Integer, String> REASONS = Map.ofEntries(
+            Map.entry(200, "OK"), Map.entry(201, "Created"), Map.entry(204, "No Content"),
+            Map.entry(206, "Partial Content"), Map.entry(304, "Not Modified"), Map.entry(400, "Bad Request"),
+            Map.entry(401, "Unauthorized"), Map.entry(403, "Forbidden"), Map.entry(404, "Not Found"),
+            Map.entry(405, "Method Not Allowed"), Map.entry(409, "Conflict"), Map.entry(413, "Payload Too Large"),
+            Map.entry(415, "Unsupported Media Type"),
+            Map.entry(416, "Range Not Satisfiable"), Map.entry(422, "Unprocessable Content"),
+            Map.entry(431, "Request Header Fields Too Large"), Map.entry(500, "Internal Server Error"),
+            Map.entry(503, "Service Unavailable"), Map.entry(507, "Insufficient Storage"));
+
+    private final SocketChannel channel;
+    private final boolean head;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private int status = 200;
+    private boolean keepAlive;
+    private boolean committed;
+    private long bytesSent;
+    private BandwidthShaper.Stream shaper;
+
+    public MediaResponse(SocketChannel channel, boolean head, boolean keepAlive) {
+        this.channel = channel;
+        this.head = head;
+        this.keepAlive = keepAlive;
+    }
+
+    public static String httpDate(long epochMillis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(java.time.Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
+    public void setStatus(int status) { this.status = status; }
+    public int getStatus() { return status; }
+    public boolean isCommitted() { return committed; }
+    public boolean isKeepAlive() { return keepAlive; }
+    public void setKeepAlive(boolean keepAlive) { this.keepAlive = keepAlive; }
+    public long getBytesSent() { return bytesSent; }
+    public SocketChannel getChannel() { return channel; }
+    public void setShaper(BandwidthShaper.Stream shaper) { this.shaper = shaper; }
+
+    public void setHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    public void sendText(int status, String text) throws IOException {
+        setHeader("Content-Type", "text/plain; charset=utf-8");
+        send(status, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void sendJson(int status, byte[] json) throws IOException {
+        setHeader("Content-Type", "application/json");
+        send(status, json);
+    }
+
+    public void send(int status, byte[] body) throws IOException {
+        this.status = status;
+        sendHeaders(body.length);
+        if (!head) {
+            write(ByteBuffer.wrap(body));
+        }
+    }
+
+    // Respuesta provisional a "Expect: 100-continue": el cliente espera a recibirla antes de mandar el cuerpo
+    public void sendContinue() throws IOException {
+        if (!committed) {
+            writeFully(ByteBuffer.wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)));
+        }
+    }
+
+    // Envía la línea de estado y las cabeceras; contentLength < 0 indica que no hay cuerpo
+    public void sendHeaders(long contentLength) throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Respuesta ya enviada");
+        }
+        committed = true;
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(REASONS.getOrDefault(status, "Unknown")).append("\r\n");
+        head.append("Date: ").append(httpDate(System.currentTimeMillis())).append("\r\n");
+        head.append("Server: MediaServer\r\n");
+        if (contentLength >= 0) {
+            head.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+        headers.forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+        head.append("\r\n");
+        writeFully(ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    public void write(ByteBuffer buffer) throws IOException {
+        bytesSent += buffer.remaining();
+        if (shaper == null) {
+            writeFully(buffer);
+            return;
+        }
+        int limit = buffer.limit();
+        while (buffer.hasRemaining()) {
+            int length = Math.min(buffer.remaining(), BandwidthShaper.QUANTUM);
+            shaper.acquire(length);
+            buffer.limit(buffer.position() + length);
+            writeFully(buffer);
+            buffer.limit(limit);
+        }
+    }
+
+    // Copia sin pasar por el heap: el kernel envía directamente desde la caché de páginas.
+    // transferTo puede enviar menos de lo pedido: lo ya pagado y no enviado se guarda para el siguiente tramo
+    public void sendFile(FileChannel file, long position, long count) throws IOException {
+        long end = position + count;
+        long credit = 0;
+        while (position < end) {
+            long length = end - position;
+            if (shaper != null) {
+                length = Math.min(length, BandwidthShaper.QUANTUM);
+                if (credit < length) {
+                    shaper.acquire((int) (length - credit));
+                    credit = length;
+                }
+            }
+            long sent = file.transferTo(position, length, channel);
+            if (sent <= 0 && position >= file.size()) {
+                throw new IOException("El fichero se ha truncado durante el envío");
+            }
+            position += sent;
+            bytesSent += sent;
+            credit -= sent;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javafx.application.Platform;
+import okhttp3.*;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+public class MediaServerApiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaServerApiClient.class);
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final TypeReference<List<ServerResponse>> SERVER_LIST = new TypeReference<>() {};
+
+    private static MediaServerApiClient shared;
+
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .eventListenerFactory(new ApiCallMetrics(MetricsRegistry.shared()))
+            .build();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Executor callbackExecutor;
+    private final String baseUrl;
+
+    public MediaServerApiClient(Executor callbackExecutor) {
+        this(callbackExecutor, ServerConfig.shared().apiBaseUrl());
+    }
+
+    public MediaServerApiClient(Executor callbackExecutor, String baseUrl) {
+        this.callbackExecutor = callbackExecutor;
+        this.baseUrl = baseUrl;
+    }
+
+    // Cliente compartido por toda la interfaz: un único pool de conexiones y
+    // resultados entregados en el hilo de JavaFX.
+    public static synchronized MediaServerApiClient shared() {
+        if (shared == null) {
+            shared = new MediaServerApiClient(Platform::runLater);
+        }
+        return shared;
+    }
+
+    // Prepara las cachés de tipos de Jackson antes de la primera petición real
+    public void warmUpMapper() {
+        try {
+            mapper.readValue("[{\"id\":1,\"name\":\"warmup\",\"ipAddress\":\"127.0.0.1\",\"port\":1,"
+                    + "\"streamKey\":\"k\",\"status\":\"ONLINE\"}]", SERVER_LIST);
+            mapper.readValue("{\"token\":\"t\"}", UserResponse.class);
+            mapper.readValue("{\"id\":1,\"status\":\"ONLINE\"}", ServerStatusEvent.class);
+            mapper.writeValueAsString(serverPayload("warmup", "127.0.0.1", 1));
+        } catch (IOException e) {
+            logger.debug("Fallo al precalentar Jackson", e);
+        }
+    }
+
+    // Abre una conexión keep-alive con el backend; la respuesta no importa
+    public CompletableFuture<Void> warmUpConnection() {
+        Request request = new Request.Builder()
+                .url(baseUrl + "/servers")
+                .head()
+                .build();
+        return call(request, response -> (Void) null).exceptionally(error -> null);
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    public CompletableFuture<UserResponse> loginWithEmail(String email, String password) {
+        return login(Map.of("email", email, "password", password));
+    }
+
+    public CompletableFuture<UserResponse> loginWithUsername(String username, String password) {
+        return login(Map.of("username", username, "password", password));
+    }
+
+    private CompletableFuture<UserResponse> login(Map<String, String> credentials) {
+        Request request = new Request.Builder()
+                .url(baseUrl + "/login")
+                .post(json(credentials))
+                .build();
+        return call(request, response -> mapper.readValue(response.body().string(), UserResponse.class));
+    }
+
+    public CompletableFuture<Void> register(String username, String email, String password, String confirmPassword) {
+        Map<String, Object> payload = Map.of(
+                "user", Map.of("username", username, "email", email, "password", password),
+                "confirmPassword", confirmPassword);
+        Request request = new Request.Builder()
+                .url(baseUrl + "/register")
+                .post(json(payload))
+                .build();
+        return call(request, response -> null);
+    }
+
+    // HEAD: el backend comprueba el token sin serializar la lista. Solo 401/403 lo dan por inválido;
+    // cualquier otro fallo se propaga para no cerrar la sesión por un corte de red.
+    public CompletableFuture<Boolean> validateToken(String token) {
+        Request request = authorized(token)
+                .url(baseUrl + "/servers")
+                .head()
+                .build();
+        return call(request, response -> true)
+                .exceptionallyCompose(error -> {
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof ApiException apiError
+                            && (apiError.getCode() == 401 || apiError.getCode() == 403)) {
+                        logger.info("Validación del token, código de respuesta: {}", apiError.getCode());
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    logger.warn("No se pudo validar el token: {}", cause.getMessage());
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    public CompletableFuture<UserResponse> refreshToken(String token) {
+        Request request = authorized(token)
+                .url(baseUrl + "/refresh")
+                .post(RequestBody.create("", null))
+                .build();
+        return call(request, response -> mapper.readValue(response.body().string(), UserResponse.class));
+    }
+
+    public CompletableFuture<List<ServerResponse>> listServers(String token) {
+        Request request = authorized(token)
+                .url(baseUrl + "/servers")
+                .get()
+                .build();
+        return call(request, response -> mapper.readValue(response.body().string(), SERVER_LIST));
+    }
+
+    // Descarga condicional: con un ETag vigente el backend responde 304 sin cuerpo
+    public CompletableFuture<ServerListSnapshot> fetchServers(String token, String etag) {
+        Request.Builder builder = authorized(token)
+                .url(baseUrl + "/servers")
+                .get();
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        return call(builder.build(), response -> {
+            if (response.code() == 304) {
+                return new ServerListSnapshot(null, etag, true);
+            }
+            List<ServerResponse> servers = mapper.readValue(response.body().string(), SERVER_LIST);
+            return new ServerListSnapshot(servers, response.header("ETag"), false);
+        });
+    }
+
+    public CompletableFuture<ServerResponse> registerServer(String token, String serverName, String ipAddress, int port) {
+        Request request = authorized(token)
+                .url(baseUrl + "/register-server")
+                .post(json(serverPayload(serverName, ipAddress, port)))
+                .build();
+        return call(request, response -> mapper.readValue(response.body().string(), ServerResponse.class));
+    }
+
+    public CompletableFuture<Void> updateServer(String token, long id, String serverName, String ipAddress, int port) {
+        Request request = authorized(token)
+                .url(baseUrl + "/servers/" + id)
+                .put(json(serverPayload(serverName, ipAddress, port)))
+                .build();
+        return call(request, response -> null);
+    }
+
+    public CompletableFuture<Void> deleteServer(String token, long id) {
+        Request request = authorized(token)
+                .url(baseUrl + "/servers/" + id)
+                .delete()
+                .build();
+        return call(request, response -> null);
+    }
+
+    public CompletableFuture<Void> heartbeat(String token, long id) {
+        Request request = authorized(token)
+                .url(baseUrl + "/servers/" + id + "/heartbeat")
+                .post(RequestBody.create("", null))
+                .build();
+        return call(request, response -> null);
+    }
+
+    // Suscripción SSE a los cambios de estado; la conexión queda abierta sin timeout de lectura
+    public EventSource subscribeServerStatus(String token, ServerStatusFeedListener listener) {
+        Request request = authorized(token)
+                .url(baseUrl + "/servers/events")
+                .header("Accept", "text/event-stream")
+                .build();
+        OkHttpClient streamingClient = client.newBuilder().readTimeout(Duration.ZERO).build();
+        return EventSources.createFactory(streamingClient).newEventSource(request, new EventSourceListener() {
+            @Override
+            public void onOpen(EventSource eventSource, Response response) {
+                callbackExecutor.execute(listener::onOpen);
+            }
+
+            @Override
+            public void onEvent(EventSource eventSource, String id, String type, String data) {
+                try {
+                    ServerStatusEvent event = mapper.readValue(data, ServerStatusEvent.class);
+                    callbackExecutor.execute(() -> listener.onStatus(event));
+                } catch (IOException e) {
+                    logger.warn("Evento de estado no válido: {}", data);
+                }
+            }
+
+            @Override
+            public void onClosed(EventSource eventSource) {
+                callbackExecutor.execute(() -> listener.onClosed(null));
+            }
+
+            @Override
+            public void onFailure(EventSource eventSource, Throwable error, Response response) {
+                Throwable cause = error;
+                if (cause == null && response != null) {
+                    cause = new ApiException(response.code(), "Suscripción rechazada");
+                }
+                Throwable reported = cause;
+                callbackExecutor.execute(() -> listener.onClosed(reported));
+            }
+        });
+    }
+
+    public CompletableFuture<Void> logout(String token) {
+        Request request = authorized(token)
+                .url(baseUrl + "/logout")
+                .post(RequestBody.create("", null))
+                .build();
+        return call(request, response -> null);
+    }
+
+    private Map<String, Object> serverPayload(String serverName, String ipAddress, int port) {
+        return Map.of("serverName", serverName, "ipAddress", ipAddress, "port", port);
+    }
+
+    private Request.Builder authorized(String token) {
+        return new Request.Builder().header("Authorization", "Bearer " + token);
+    }
+
+    private RequestBody json(Object payload) {
+        try {
+            return RequestBody.create(mapper.writeValueAsString(payload), JSON);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> call(Request request, ResponseParser<T> parser) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                callbackExecutor.execute(() -> future.completeExceptionally(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (!response.isSuccessful() && response.code() != 304) {
+                        String errorMsg = response.body() != null ? response.body().string() : "Error desconocido";
+                        throw new ApiException(response.code(), errorMsg);
+                    }
+                    T result = parser.parse(response);
+                    callbackExecutor.execute(() -> future.complete(result));
+                } catch (IOException | RuntimeException e) {
+                    callbackExecutor.execute(() -> future.completeExceptionally(e));
+                }
+            }
+        });
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        T parse(Response response) throws IOException;
+    }
+}
@@ -0,0 +1,197 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Modo sin interfaz (--headless): solo servidor multimedia, indexación y heartbeat. No toca JavaFX ni AWT,
+// así que el arranque y la memoria se reducen a lo que necesita servir. El token sale de MEDIASERVER_TOKEN
+// o, si ese ya no vale, de token.txt, donde AuthSession deja el renovado. El servidor se registra en el backend
+// con la dirección y el puerto en que escucha de verdad.
+public class MediaServerDaemon {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaServerDaemon.class);
+    private static final String TOKEN_ENV = "MEDIASERVER_TOKEN";
+    private static final String TOKEN_FILE = "token.txt";
+    private static final long API_TIMEOUT_SECONDS = 30;
+
+    private final ServerConfig config;
+    private final MediaServerApiClient api;
+    private final HeartbeatService heartbeat;
+    private final AuthSession session;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public MediaServerDaemon(ServerConfig config, MediaServerApiClient api) {
+        this.config = config;
+        this.api = api;
+        this.heartbeat = new HeartbeatService(api);
+        this.session = AuthSession.fromConfig(config, api);
+        // AuthSession guarda el token renovado en token.txt; el heartbeat lo adopta sin reiniciarse
+        session.addTokenListener(heartbeat::setToken);
+    }
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        // Las miniaturas usan ImageIO: sin pantalla, AWT no debe buscar un servidor gráfico
+        System.setProperty("java.awt.headless", "true");
+        // Los callbacks del cliente se ejecutan en el hilo de OkHttp: aquí no hay hilo de interfaz
+        MediaServerDaemon daemon = new MediaServerDaemon(ServerConfig.shared(), new MediaServerApiClient(Runnable::run));
+        int status = daemon.run(start);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    int run(long startNanos) {
+        List<String> tokens = readTokens();
+        if (tokens.isEmpty()) {
+            logger.error("Sin sesión: defina {} o inicie sesión una vez con la interfaz para crear {}",
+                    TOKEN_ENV, TOKEN_FILE);
+            return 2;
+        }
+        MediaServerRuntime.start();
+        int port = MediaServerRuntime.port();
+        if (port < 0) {
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "media-server-shutdown"));
+        try {
+            ServerResponse registered = null;
+            String token = null;
+            for (int i = 0; registered == null; i++) {
+                token = tokens.get(i);
+                try {
+                    registered = register(token, port);
+                } catch (ExecutionException e) {
+                    if (i + 1 == tokens.size() || !isUnauthorized(e)) {
+                        throw e;
+                    }
+                    // La sesión renueva el token y solo guarda el nuevo en token.txt: la variable queda revocada
+                    logger.warn("El token de {} ya no es válido; se usa el de {}", TOKEN_ENV, TOKEN_FILE);
+                }
+            }
+            session.start(token);
+            logger.info("MediaServer sin interfaz listo en {}:{} como '{}' en {} ms", registered.getIpAddress(),
+                    registered.getPort(), registered.getName(), (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (ExecutionException e) {
+            if (isUnauthorized(e)) {
+                logger.error("El token guardado ya no es válido; vuelva a iniciar sesión");
+            } else {
+                logger.error("No se pudo registrar el servidor en el backend", MediaServerApiClient.unwrap(e.getCause()));
+            }
+            MediaServerRuntime.stop();
+            return 1;
+        } catch (IOException | TimeoutException e) {
+            logger.error("No se pudo registrar el servidor en el backend", e);
+            MediaServerRuntime.stop();
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    // Reutiliza el registro de esta dirección y puerto si ya existe; si no, lo crea
+    private ServerResponse register(String token, int port)
+            throws IOException, ExecutionException, InterruptedException, TimeoutException {
+        String address = advertisedAddress();
+        LocalServer.advertise(address, port);
+        List<ServerResponse> servers = new ArrayList<>(
+                api.listServers(token).get(API_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        ServerResponse own = servers.stream().filter(LocalServer::isLocal).findFirst().orElse(null);
+        if (own == null) {
+            own = api.registerServer(token, serverName(), address, port).get(API_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            servers.add(own);
+            logger.info("Servidor registrado en el backend: {} ({}:{})", own.getName(), address, port);
+        } else {
+            logger.info("Servidor ya registrado en el backend: {} ({}:{})", own.getName(), address, port);
+        }
+        // start() arranca la sesión desde cero, así que la lista ya conocida se aplica después
+        heartbeat.start(token);
+        heartbeat.updateServers(servers);
+        return own;
+    }
+
+    // media.publicAddress manda; si no, la dirección de la interfaz por la que se llega al backend,
+    // que es la que verán los demás aunque el servidor escuche en todas
+    private String advertisedAddress() throws IOException {
+        String configured = config.get("media.publicAddress", "");
+        if (!configured.isEmpty()) {
+            return configured;
+        }
+        URI backend = URI.create(config.apiBaseUrl());
+        int backendPort = backend.getPort() > 0 ? backend.getPort() : "https".equals(backend.getScheme()) ? 443 : 80;
+        try (DatagramSocket probe = new DatagramSocket()) {
+            // Un "connect" UDP no envía nada: solo elige la ruta y con ella la dirección de origen
+            probe.connect(new InetSocketAddress(InetAddress.getByName(backend.getHost()), backendPort));
+            InetAddress local = probe.getLocalAddress();
+            if (local != null && !local.isAnyLocalAddress()) {
+                return local.getHostAddress();
+            }
+        } catch (IOException e) {
+            logger.debug("Sin ruta hacia el backend {}: {}", backend.getHost(), e.getMessage());
+        }
+        return InetAddress.getLocalHost().getHostAddress();
+    }
+
+    private String serverName() throws IOException {
+        String configured = config.get("media.serverName", "");
+        String name = configured.isEmpty() ? InetAddress.getLocalHost().getHostName() : configured;
+        // El backend solo acepta letras, números, guiones y guiones bajos
+        name = name.replaceAll("[^a-zA-Z0-9-_]", "-");
+        return name.isEmpty() ? "mediaserver" : name;
+    }
+
+    private static boolean isUnauthorized(ExecutionException e) {
+        return MediaServerApiClient.unwrap(e.getCause()) instanceof ApiException apiError && apiError.getCode() == 401;
+    }
+
+    // Por orden de preferencia: MEDIASERVER_TOKEN y después token.txt, sin repetir
+    private List<String> readTokens() {
+        List<String> tokens = new ArrayList<>(2);
+        String token = System.getenv(TOKEN_ENV);
+        if (token != null && !token.isBlank()) {
+            tokens.add(token.trim());
+        }
+        Path file = Paths.get(TOKEN_FILE);
+        try {
+            if (Files.exists(file)) {
+                token = Files.readString(file).trim();
+                if (!token.isEmpty() && !tokens.contains(token)) {
+                    tokens.add(token);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error al leer el token guardado", e);
+        }
+        return tokens;
+    }
+
+    private void shutdown() {
+        logger.info("Deteniendo MediaServer sin interfaz");
+        session.end();
+        heartbeat.endSession();
+        MediaServerRuntime.stop();
+        stopped.countDown();
+    }
+}
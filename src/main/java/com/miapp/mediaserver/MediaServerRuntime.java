@@ -0,0 +1,159 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+// Servidor multimedia embebido: se arranca con la aplicación en el puerto que se registra en el backend
+public final class MediaServerRuntime {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaServerRuntime.class);
+
+    private static MediaHttpServer server;
+    private static LibraryIndexer indexer;
+    private static FastStartQueue fastStartQueue;
+    private static ThumbnailService thumbnails;
+    private static LiveStreamRegistry liveStreams;
+    private static ReadAheadScheduler readAhead;
+    private static UploadStore uploads;
+
+    private MediaServerRuntime() {
+    }
+
+    public static synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        ServerConfig config = ServerConfig.shared();
+        MediaLibrary library = new MediaLibrary(config.libraryRoots());
+        for (Path root : library.getRoots()) {
+            if (!Files.isDirectory(root)) {
+                logger.warn("La biblioteca multimedia {} no existe", root);
+            }
+        }
+        MediaHttpServer httpServer = new MediaHttpServer(new InetSocketAddress(config.mediaPort()));
+        CatalogSearchIndex searchIndex = new CatalogSearchIndex();
+        httpServer.route(CatalogSearchHandler.PATH, new CatalogSearchHandler(searchIndex, StreamKeyRegistry.shared()));
+        ThumbnailService thumbnailService = ThumbnailService.fromConfig(config);
+        BandwidthShaper shaper = BandwidthShaper.fromConfig(config);
+        BlockCache blockCache = BlockCache.fromConfig(config);
+        ReadAheadScheduler readAheadScheduler = ReadAheadScheduler.fromConfig(config, blockCache);
+        httpServer.route(MediaFileHandler.PREFIX, new MediaFileHandler(library, StreamKeyRegistry.shared(),
+                AdmissionController.fromConfig(config), thumbnailService, shaper, blockCache, readAheadScheduler));
+        LiveStreamRegistry liveRegistry = LiveStreamRegistry.fromConfig(config);
+        httpServer.route(LiveHandler.PREFIX, new LiveHandler(liveRegistry, StreamKeyRegistry.shared(), shaper));
+        httpServer.route(BandwidthAdminHandler.PATH, new BandwidthAdminHandler(shaper));
+        if (blockCache != null) {
+            httpServer.route(CacheStatsHandler.PATH, new CacheStatsHandler(blockCache));
+        }
+        if (config.getBoolean("metrics.enabled", true)) {
+            registerMetrics(MetricsRegistry.shared(), shaper, blockCache);
+            httpServer.route(MetricsHandler.PATH, new MetricsHandler(MetricsRegistry.shared()));
+        }
+        UploadStore uploadStore = UploadStore.fromConfig(config, library, MediaServerRuntime::libraryEntries);
+        if (uploadStore != null) {
+            httpServer.route(UploadHandler.PATH, new UploadHandler(uploadStore, UploadAuthorizer.fromConfig(config)));
+        }
+        try {
+            httpServer.start();
+            server = httpServer;
+        } catch (IOException e) {
+            logger.error("No se pudo iniciar el servidor multimedia en el puerto {}", config.mediaPort(), e);
+            thumbnailService.stop();
+            liveRegistry.stop();
+            if (readAheadScheduler != null) {
+                readAheadScheduler.stop();
+            }
+            if (uploadStore != null) {
+                uploadStore.stop();
+            }
+            return;
+        }
+        thumbnails = thumbnailService;
+        liveStreams = liveRegistry;
+        readAhead = readAheadScheduler;
+        uploads = uploadStore;
+        indexer = LibraryIndexer.forLibrary(library);
+        indexer.addListener(searchIndex);
+        // Reescribe ficheros de la biblioteca, así que solo se activa de forma explícita
+        if (config.getBoolean("faststart.enabled", false)) {
+            logger.warn("faststart.enabled: los MP4 con moov al final se reescribirán en la biblioteca");
+            fastStartQueue = FastStartQueue.fromConfig(config);
+            indexer.addListener(fastStartQueue);
+        }
+        indexer.start();
+    }
+
+    // Contadores que ya llevan los propios componentes; se leen en cada volcado de /metrics
+    private static void registerMetrics(MetricsRegistry metrics, BandwidthShaper shaper, BlockCache blockCache) {
+        metrics.counterFunction("mediaserver_stream_bytes_total", "Bytes enviados a los espectadores",
+                shaper::getBytesSent);
+        metrics.gaugeFunction("mediaserver_stream_active_sessions", "Envíos en curso", shaper::getActiveStreams);
+        MetadataService metadata = MetadataService.shared();
+        metrics.counterFunction("mediaserver_metadata_cache_hits_total", "Aciertos de la caché de metadatos",
+                metadata::getHits);
+        metrics.counterFunction("mediaserver_metadata_cache_misses_total", "Fallos de la caché de metadatos",
+                metadata::getMisses);
+        if (blockCache != null) {
+            metrics.counterFunction("mediaserver_block_cache_hits_total", "Aciertos de la caché de bloques",
+                    () -> blockCache.getStats().hits());
+            metrics.counterFunction("mediaserver_block_cache_misses_total", "Fallos de la caché de bloques",
+                    () -> blockCache.getStats().misses());
+            metrics.counterFunction("mediaserver_block_cache_evictions_total", "Bloques expulsados de la caché",
+                    () -> blockCache.getStats().evictions());
+            metrics.gaugeFunction("mediaserver_block_cache_used_bytes", "Bytes ocupados en la caché de bloques",
+                    () -> blockCache.getStats().usedBytes());
+        }
+    }
+
+    // Puerto en el que escucha realmente el servidor, o -1 si no está en marcha
+    public static synchronized int port() {
+        return server == null ? -1 : server.getPort();
+    }
+
+    public static synchronized LibraryIndexer indexer() {
+        return indexer;
+    }
+
+    private static Collection<MediaEntry> libraryEntries() {
+        LibraryIndexer current = indexer();
+        return current == null ? List.of() : current.getEntries();
+    }
+
+    public static synchronized void stop() {
+        if (indexer != null) {
+            indexer.stop();
+            indexer = null;
+        }
+        if (fastStartQueue != null) {
+            fastStartQueue.stop();
+            fastStartQueue = null;
+        }
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+        if (thumbnails != null) {
+            thumbnails.stop();
+            thumbnails = null;
+        }
+        if (liveStreams != null) {
+            liveStreams.stop();
+            liveStreams = null;
+        }
+        if (readAhead != null) {
+            readAhead.stop();
+            readAhead = null;
+        }
+        if (uploads != null) {
+            uploads.stop();
+            uploads = null;
+        }
+    }
+}
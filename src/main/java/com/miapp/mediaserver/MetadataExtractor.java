@@ -0,0 +1,508 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Lee solo las cabeceras (cajas MP4, elementos EBML, ID3 y la primera trama MP3) con lecturas posicionadas pequeñas
+public final class MetadataExtractor {
+
+    // Info y Tracks de Matroska y las etiquetas ID3 caben de sobra; lo que exceda se ignora
+    private static final int MAX_ELEMENT_READ = 256 * 1024;
+
+    private static final int EBML_HEADER = 0x1A45DFA3;
+    private static final int MKV_SEGMENT = 0x18538067;
+    private static final int MKV_INFO = 0x1549A966;
+    private static final int MKV_TRACKS = 0x1654AE6B;
+    private static final int MKV_CLUSTER = 0x1F43B675;
+    private static final int MKV_TIMECODE_SCALE = 0x2AD7B1;
+    private static final int MKV_DURATION = 0x4489;
+    private static final int MKV_TITLE = 0x7BA9;
+    private static final int MKV_TRACK_ENTRY = 0xAE;
+    private static final int MKV_TRACK_TYPE = 0x83;
+    private static final int MKV_CODEC_ID = 0x86;
+    private static final int MKV_VIDEO = 0xE0;
+    private static final int MKV_PIXEL_WIDTH = 0xB0;
+    private static final int MKV_PIXEL_HEIGHT = 0xBA;
+
+    private static final int[] MP3_BITRATES_V1 = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] MP3_BITRATES_V2 = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+    private static final int[] MP3_SAMPLE_RATES = {44100, 48000, 32000};
+
+    private MetadataExtractor() {
+    }
+
+    public static MediaMetadata extract(Path file, String container) {
+        if (container == null) {
+            return MediaMetadata.UNKNOWN;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return switch (container) {
+                case "mp4" -> mp4(channel);
+                case "matroska" -> matroska(channel);
+                case "mp3" -> mp3(channel);
+                default -> MediaMetadata.UNKNOWN;
+            };
+        } catch (IOException | RuntimeException e) {
+            return MediaMetadata.UNKNOWN;
+        }
+    }
+
+    // ---- MP4 / ISO-BMFF ----
+
+    private static MediaMetadata mp4(FileChannel channel) throws IOException {
+        Builder result = new Builder();
+        long[] moov = findBox(channel, 0, channel.size(), "moov");
+        if (moov == null) {
+            return MediaMetadata.UNKNOWN;
+        }
+        long position = moov[0];
+        while (position + 8 <= moov[1]) {
+            long[] box = boxAt(channel, position, moov[1]);
+            if (box == null) {
+                break;
+            }
+            String type = boxType(channel, position);
+            if (type.equals("mvhd")) {
+                ByteBuffer mvhd = read(channel, box[0], 32);
+                int version = mvhd.get(0) & 0xFF;
+                long timescale = (version == 1 ? mvhd.getInt(20) : mvhd.getInt(12)) & 0xFFFFFFFFL;
+                long duration = version == 1 ? mvhd.getLong(24) : mvhd.getInt(16) & 0xFFFFFFFFL;
+                if (timescale > 0) {
+                    result.durationMillis = duration * 1000 / timescale;
+                }
+            } else if (type.equals("trak")) {
+                mp4Track(channel, box[0], box[1], result);
+            }
+            position = box[1];
+        }
+        return result.build();
+    }
+
+    private static void mp4Track(FileChannel channel, long from, long to, Builder result) throws IOException {
+        int width = 0;
+        int height = 0;
+        String handler = null;
+        String codec = null;
+        long[] tkhd = findBox(channel, from, to, "tkhd");
+        if (tkhd != null) {
+            ByteBuffer header = read(channel, tkhd[0], 92);
+            int offset = (header.get(0) & 0xFF) == 1 ? 88 : 76;
+            if (header.limit() >= offset + 8) {
+                width = header.getInt(offset) >>> 16;
+                height = header.getInt(offset + 4) >>> 16;
+            }
+        }
+        long[] mdia = findBox(channel, from, to, "mdia");
+        if (mdia != null) {
+            long[] hdlr = findBox(channel, mdia[0], mdia[1], "hdlr");
+            if (hdlr != null) {
+                handler = ascii(read(channel, hdlr[0] + 8, 4));
+            }
+            long[] stsd = findPath(channel, mdia[0], mdia[1], "minf", "stbl", "stsd");
+            if (stsd != null) {
+                codec = ascii(read(channel, stsd[0] + 12, 4)).trim();
+            }
+        }
+        if ("vide".equals(handler) && result.videoCodec == null) {
+            result.videoCodec = codec;
+            result.width = width;
+            result.height = height;
+        } else if ("soun".equals(handler) && result.audioCodec == null) {
+            result.audioCodec = codec;
+        }
+    }
+
+    private static long[] findPath(FileChannel channel, long from, long to, String... types) throws IOException {
+        long[] box = {from, to};
+        for (String type : types) {
+            box = findBox(channel, box[0], box[1], type);
+            if (box == null) {
+                return null;
+            }
+        }
+        return box;
+    }
+
+    // Devuelve {inicio del contenido, fin} de la primera caja del tipo pedido dentro de [from, to)
+    static long[] findBox(FileChannel channel, long from, long to, String type) throws IOException {
+        long position = from;
+        while (position + 8 <= to) {
+            long[] box = boxAt(channel, position, to);
+            if (box == null) {
+                return null;
+            }
+            if (boxType(channel, position).equals(type)) {
+                return box;
+            }
+            position = box[1];
+        }
+        return null;
+    }
+
+    private static long[] boxAt(FileChannel channel, long position, long to) throws IOException {
+        ByteBuffer header = read(channel, position, 16);
+        if (header.limit() < 8) {
+            return null;
+        }
+        long size = header.getInt(0) & 0xFFFFFFFFL;
+        int headerSize = 8;
+        if (size == 1) {
+            if (header.limit() < 16) {
+                return null;
+            }
+            size = header.getLong(8);
+            headerSize = 16;
+        } else if (size == 0) {
+            size = to - position;
+        }
+        if (size < headerSize || position + size > to) {
+            return null;
+        }
+        return new long[]{position + headerSize, position + size};
+    }
+
+    private static String boxType(FileChannel channel, long position) throws IOException {
+        return ascii(read(channel, position + 4, 4));
+    }
+
+    // ---- Matroska / WebM ----
+
+    private static MediaMetadata matroska(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        Ebml header = Ebml.at(channel, 0, fileSize);
+        if (header == null || header.id != EBML_HEADER) {
+            return MediaMetadata.UNKNOWN;
+        }
+        Ebml segment = Ebml.at(channel, header.end(fileSize), fileSize);
+        if (segment == null || segment.id != MKV_SEGMENT) {
+            return MediaMetadata.UNKNOWN;
+        }
+        Builder result = new Builder();
+        long segmentEnd = segment.end(fileSize);
+        long position = segment.dataStart;
+        boolean info = false;
+        boolean tracks = false;
+        // Info y Tracks van antes de los clústeres; en cuanto aparece uno se deja de leer
+        while (position < segmentEnd && !(info && tracks)) {
+            Ebml element = Ebml.at(channel, position, segmentEnd);
+            if (element == null || element.id == MKV_CLUSTER || element.size < 0) {
+                break;
+            }
+            if (element.id == MKV_INFO) {
+                matroskaInfo(element.load(channel), result);
+                info = true;
+            } else if (element.id == MKV_TRACKS) {
+                matroskaTracks(element.load(channel), result);
+                tracks = true;
+            }
+            position = element.end(segmentEnd);
+        }
+        return result.build();
+    }
+
+    private static void matroskaInfo(ByteBuffer info, Builder result) {
+        long scale = 1_000_000;
+        double duration = -1;
+        while (info.hasRemaining()) {
+            Ebml element = Ebml.in(info);
+            if (element == null) {
+                break;
+            }
+            if (element.id == MKV_TIMECODE_SCALE) {
+                scale = element.uint(info);
+            } else if (element.id == MKV_DURATION) {
+                duration = element.size == 4 ? info.getFloat(info.position()) : info.getDouble(info.position());
+            } else if (element.id == MKV_TITLE) {
+                result.title = element.string(info, StandardCharsets.UTF_8);
+            }
+            element.skip(info);
+        }
+        if (duration >= 0) {
+            result.durationMillis = (long) (duration * scale / 1_000_000);
+        }
+    }
+
+    private static void matroskaTracks(ByteBuffer tracks, Builder result) {
+        while (tracks.hasRemaining()) {
+            Ebml entry = Ebml.in(tracks);
+            if (entry == null) {
+                break;
+            }
+            if (entry.id == MKV_TRACK_ENTRY) {
+                ByteBuffer track = entry.slice(tracks);
+                long type = 0;
+                String codec = null;
+                int width = 0;
+                int height = 0;
+                while (track.hasRemaining()) {
+                    Ebml element = Ebml.in(track);
+                    if (element == null) {
+                        break;
+                    }
+                    if (element.id == MKV_TRACK_TYPE) {
+                        type = element.uint(track);
+                    } else if (element.id == MKV_CODEC_ID) {
+                        codec = element.string(track, StandardCharsets.US_ASCII);
+                    } else if (element.id == MKV_VIDEO) {
+                        ByteBuffer video = element.slice(track);
+                        while (video.hasRemaining()) {
+                            Ebml dimension = Ebml.in(video);
+                            if (dimension == null) {
+                                break;
+                            }
+                            if (dimension.id == MKV_PIXEL_WIDTH) {
+                                width = (int) dimension.uint(video);
+                            } else if (dimension.id == MKV_PIXEL_HEIGHT) {
+                                height = (int) dimension.uint(video);
+                            }
+                            dimension.skip(video);
+                        }
+                    }
+                    element.skip(track);
+                }
+                if (type == 1 && result.videoCodec == null) {
+                    result.videoCodec = codec;
+                    result.width = width;
+                    result.height = height;
+                } else if (type == 2 && result.audioCodec == null) {
+                    result.audioCodec = codec;
+                }
+            }
+            entry.skip(tracks);
+        }
+    }
+
+    // Cabecera de elemento EBML: identificador y tamaño como enteros de longitud variable
+    private record Ebml(int id, long size, long dataStart) {
+
+        static Ebml at(FileChannel channel, long position, long limit) throws IOException {
+            ByteBuffer header = read(channel, position, (int) Math.min(12, limit - position));
+            Ebml element = in(header);
+            return element == null ? null : new Ebml(element.id, element.size, position + element.dataStart);
+        }
+
+        // Lee la cabecera en la posición actual del buffer; dataStart queda relativo al inicio del buffer
+        static Ebml in(ByteBuffer buffer) {
+            int idLength = varintLength(buffer);
+            if (idLength < 1 || idLength > 4 || buffer.remaining() < idLength) {
+                return null;
+            }
+            int id = 0;
+            for (int i = 0; i < idLength; i++) {
+                id = (id << 8) | (buffer.get() & 0xFF);
+            }
+            if (!buffer.hasRemaining()) {
+                return null;
+            }
+            int sizeLength = varintLength(buffer);
+            if (sizeLength < 1 || buffer.remaining() < sizeLength) {
+                return null;
+            }
+            long size = buffer.get() & (0xFF >> sizeLength);
+            boolean unknown = size == (0xFF >> sizeLength);
+            for (int i = 1; i < sizeLength; i++) {
+                int b = buffer.get() & 0xFF;
+                unknown &= b == 0xFF;
+                size = (size << 8) | b;
+            }
+            return new Ebml(id, unknown ? -1 : size, buffer.position());
+        }
+
+        private static int varintLength(ByteBuffer buffer) {
+            int first = buffer.get(buffer.position()) & 0xFF;
+            return first == 0 ? -1 : Integer.numberOfLeadingZeros(first) - 23;
+        }
+
+        long end(long limit) {
+            return size < 0 ? limit : Math.min(limit, dataStart + size);
+        }
+
+        ByteBuffer load(FileChannel channel) throws IOException {
+            return read(channel, dataStart, (int) Math.min(size, MAX_ELEMENT_READ));
+        }
+
+        ByteBuffer slice(ByteBuffer buffer) {
+            int length = (int) Math.min(size < 0 ? buffer.remaining() : size, buffer.remaining());
+            return buffer.slice(buffer.position(), length);
+        }
+
+        long uint(ByteBuffer buffer) {
+            long value = 0;
+            for (int i = 0; i < size && i < 8; i++) {
+                value = (value << 8) | (buffer.get(buffer.position() + i) & 0xFF);
+            }
+            return value;
+        }
+
+        String string(ByteBuffer buffer, Charset charset) {
+            byte[] bytes = new byte[(int) Math.min(size, buffer.remaining())];
+            buffer.get(buffer.position(), bytes);
+            int length = bytes.length;
+            while (length > 0 && bytes[length - 1] == 0) {
+                length--;
+            }
+            return new String(bytes, 0, length, charset);
+        }
+
+        void skip(ByteBuffer buffer) {
+            long remaining = size < 0 ? buffer.remaining() : Math.min(size, buffer.remaining());
+            buffer.position(buffer.position() + (int) remaining);
+        }
+    }
+
+    // ---- MP3 ----
+
+    private static MediaMetadata mp3(FileChannel channel) throws IOException {
+        Builder result = new Builder();
+        result.audioCodec = "mp3";
+        long audioStart = 0;
+        ByteBuffer header = read(channel, 0, 10);
+        if (header.limit() == 10 && ascii(header.slice(0, 3)).equals("ID3")) {
+            int version = header.get(3) & 0xFF;
+            int flags = header.get(5) & 0xFF;
+            int tagSize = syncsafe(header, 6);
+            audioStart = 10L + tagSize + ((flags & 0x10) != 0 ? 10 : 0);
+            id3Frames(read(channel, 10, Math.min(tagSize, MAX_ELEMENT_READ)), version, result);
+        }
+        ByteBuffer frames = read(channel, audioStart, 4096);
+        for (int i = 0; i + 4 <= frames.limit(); i++) {
+            int b0 = frames.get(i) & 0xFF;
+            int b1 = frames.get(i + 1) & 0xFF;
+            if (b0 != 0xFF || (b1 & 0xE0) != 0xE0) {
+                continue;
+            }
+            long duration = mp3Duration(frames, i, channel.size() - audioStart - i);
+            if (duration >= 0) {
+                result.durationMillis = duration;
+                break;
+            }
+        }
+        return result.build();
+    }
+
+    // Con cabecera Xing/Info o VBRI se usa el número de tramas; si no, se estima como CBR
+    private static long mp3Duration(ByteBuffer buffer, int at, long audioBytes) {
+        int b1 = buffer.get(at + 1) & 0xFF;
+        int b2 = buffer.get(at + 2) & 0xFF;
+        int b3 = buffer.get(at + 3) & 0xFF;
+        int versionBits = (b1 >> 3) & 0x3;
+        int layerBits = (b1 >> 1) & 0x3;
+        int bitrateIndex = b2 >> 4;
+        int sampleRateIndex = (b2 >> 2) & 0x3;
+        if (versionBits == 1 || layerBits != 1 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return -1;
+        }
+        boolean mpeg1 = versionBits == 3;
+        int sampleRate = MP3_SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : versionBits == 2 ? 1 : 2);
+        int bitrate = (mpeg1 ? MP3_BITRATES_V1 : MP3_BITRATES_V2)[bitrateIndex] * 1000;
+        int samplesPerFrame = mpeg1 ? 1152 : 576;
+        boolean mono = (b3 >> 6) == 3;
+        int sideInfo = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        int xing = at + 4 + sideInfo;
+        if (xing + 12 <= buffer.limit()) {
+            String tag = ascii(buffer.slice(xing, 4));
+            if ((tag.equals("Xing") || tag.equals("Info")) && (buffer.getInt(xing + 4) & 1) != 0) {
+                long frames = buffer.getInt(xing + 8) & 0xFFFFFFFFL;
+                return frames * samplesPerFrame * 1000 / sampleRate;
+            }
+        }
+        int vbri = at + 36;
+        if (vbri + 18 <= buffer.limit() && ascii(buffer.slice(vbri, 4)).equals("VBRI")) {
+            long frames = buffer.getInt(vbri + 14) & 0xFFFFFFFFL;
+            return frames * samplesPerFrame * 1000 / sampleRate;
+        }
+        return audioBytes * 8 * 1000 / bitrate;
+    }
+
+    private static void id3Frames(ByteBuffer tag, int version, Builder result) {
+        int idLength = version == 2 ? 3 : 4;
+        int headerLength = version == 2 ? 6 : 10;
+        int position = 0;
+        while (position + headerLength <= tag.limit()) {
+            String id = ascii(tag.slice(position, idLength));
+            if (id.charAt(0) == 0) {
+                break;
+            }
+            int size;
+            if (version == 2) {
+                size = ((tag.get(position + 3) & 0xFF) << 16) | ((tag.get(position + 4) & 0xFF) << 8)
+                        | (tag.get(position + 5) & 0xFF);
+            } else if (version == 4) {
+                size = syncsafe(tag, position + 4);
+            } else {
+                size = tag.getInt(position + 4);
+            }
+            int dataStart = position + headerLength;
+            if (size <= 0 || dataStart + size > tag.limit()) {
+                break;
+            }
+            if (id.equals("TIT2") || id.equals("TT2")) {
+                result.title = id3Text(tag.slice(dataStart, size));
+            } else if (id.equals("TPE1") || id.equals("TP1")) {
+                result.artist = id3Text(tag.slice(dataStart, size));
+            }
+            position = dataStart + size;
+        }
+    }
+
+    private static String id3Text(ByteBuffer frame) {
+        if (!frame.hasRemaining()) {
+            return null;
+        }
+        int encoding = frame.get(0);
+        byte[] bytes = new byte[frame.limit() - 1];
+        frame.get(1, bytes);
+        Charset charset = switch (encoding) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        String text = new String(bytes, charset);
+        int end = text.indexOf('\0');
+        return (end < 0 ? text : text.substring(0, end)).trim();
+    }
+
+    private static int syncsafe(ByteBuffer buffer, int at) {
+        return ((buffer.get(at) & 0x7F) << 21) | ((buffer.get(at + 1) & 0x7F) << 14)
+                | ((buffer.get(at + 2) & 0x7F) << 7) | (buffer.get(at + 3) & 0x7F);
+    }
+
+    // ---- Utilidades ----
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(0, length));
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String ascii(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(buffer.position(), bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static final class Builder {
+        private long durationMillis = -1;
+        private String videoCodec;
+        private String audioCodec;
+        private int width;
+        private int height;
+        private String title;
+        private String artist;
+
+        MediaMetadata build() {
+            return new MediaMetadata(durationMillis, videoCodec, audioCodec, width, height, title, artist);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.miapp.mediaserver;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caché LRU acotada delante del extractor: la clave incluye el mtime, así que un fichero modificado se relee solo
+public class MetadataService {
+
+    private static MetadataService shared;
+
+    private final int maxEntries;
+    private final Map<Key, MediaMetadata> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MetadataService(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, MediaMetadata> eldest) {
+                return size() > MetadataService.this.maxEntries;
+            }
+        };
+    }
+
+    public static synchronized MetadataService shared() {
+        if (shared == null) {
+            shared = new MetadataService(ServerConfig.shared().getInt("metadata.cacheEntries", 20_000));
+        }
+        return shared;
+    }
+
+    public MediaMetadata get(MediaEntry entry) {
+        return get(entry.path(), entry.lastModified(), entry.container());
+    }
+
+    // La extracción va fuera del candado: dos lecturas simultáneas del mismo fichero solo duplican trabajo
+    public MediaMetadata get(Path path, long lastModified, String container) {
+        Key key = new Key(path, lastModified);
+        synchronized (cache) {
+            MediaMetadata cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        MediaMetadata metadata = MetadataExtractor.extract(path, container);
+        synchronized (cache) {
+            cache.put(key, metadata);
+        }
+        return metadata;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private record Key(Path path, long lastModified) {
+    }
+}
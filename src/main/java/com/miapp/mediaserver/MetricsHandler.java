@@ -0,0 +1,33 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// GET /metrics: todas las métricas en el formato de texto de Prometheus. Solo desde la propia máquina.
+public class MetricsHandler implements RouteHandler {
+
+    public static final String PATH = "/metrics";
+
+    private final MetricsRegistry metrics;
+
+    public MetricsHandler(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        if (!PATH.equals(request.getPath())) {
+            throw new HttpException(404, "No encontrado");
+        }
+        if (!request.isLoopback()) {
+            throw new HttpException(403, "Solo disponible en local");
+        }
+        if (!"GET".equals(request.getMethod()) && !request.isHead()) {
+            response.setHeader("Allow", "GET, HEAD");
+            throw new HttpException(405, "Método no permitido");
+        }
+        response.setHeader("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.send(200, metrics.scrape().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,203 @@
+package com.miapp.mediaserver;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+// Contadores, indicadores e histogramas de latencia con nombre y etiquetas, volcados en el formato de texto
+// de Prometheus. Las etiquetas se pasan por pares: counter("x_total", "...", "endpoint", "/login").
+// Los histogramas se exportan como cubetas acumuladas y no como cuantiles: unos cuantiles desde el arranque
+// apenas se mueven tras horas de servicio, mientras que con rate() sobre las cubetas Prometheus calcula el
+// percentil de la ventana que se le pida (histogram_quantile(0.99, rate(x_bucket[5m]))).
+// Con metrics.jfr=true los componentes instrumentados emiten además eventos JFR propios.
+public class MetricsRegistry {
+
+    // De 100 µs a 10 s, en segundos en la salida
+    private static final long[] BUCKETS_MICROS = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000};
+    private static final String[] BUCKET_LABELS = bucketLabels();
+
+    private static MetricsRegistry shared;
+
+    private final boolean jfrEnabled;
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public MetricsRegistry(boolean jfrEnabled) {
+        this.jfrEnabled = jfrEnabled;
+    }
+
+    public static synchronized MetricsRegistry shared() {
+        if (shared == null) {
+            shared = new MetricsRegistry(ServerConfig.shared().getBoolean("metrics.jfr", false));
+        }
+        return shared;
+    }
+
+    public boolean isJfrEnabled() {
+        return jfrEnabled;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) series(name, help, Type.COUNTER, labels, ignored -> new Counter());
+    }
+
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) series(name, help, Type.GAUGE, labels, ignored -> new Gauge());
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) series(name, help, Type.HISTOGRAM, labels, ignored -> new LatencyHistogram());
+    }
+
+    // Valores que ya lleva otro componente (aciertos de caché, sesiones abiertas): se leen al volcar
+    public void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series.put(labelString(labels), value);
+    }
+
+    public void gaugeFunction(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labelString(labels), value);
+    }
+
+    private Object series(String name, String help, Type type, String[] labels, Function<String, Object> factory) {
+        return family(name, help, type).series.computeIfAbsent(labelString(labels), factory);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, ignored -> new Family(help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("La métrica " + name + " ya existe con otro tipo");
+        }
+        return family;
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+            family.series.forEach((labels, metric) -> {
+                if (metric instanceof LatencyHistogram histogram) {
+                    appendHistogram(out, name, labels, histogram.snapshot());
+                } else {
+                    appendSample(out, name, labels, valueOf(metric));
+                }
+            });
+        });
+        return out.toString();
+    }
+
+    // En segundos: cubetas acumuladas hasta +Inf, suma y número de muestras
+    private static void appendHistogram(StringBuilder out, String name, String labels,
+                                        LatencyHistogram.Snapshot snapshot) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long[] cumulative = snapshot.cumulativeCounts(BUCKETS_MICROS);
+        for (int i = 0; i < cumulative.length; i++) {
+            appendSample(out, name + "_bucket", prefix + "le=\"" + BUCKET_LABELS[i] + "\"", cumulative[i]);
+        }
+        appendSample(out, name + "_bucket", prefix + "le=\"+Inf\"", snapshot.count());
+        appendSample(out, name + "_sum", labels, snapshot.sumMicros() / 1e6);
+        appendSample(out, name + "_count", labels, snapshot.count());
+    }
+
+    private static String[] bucketLabels() {
+        String[] labels = new String[BUCKETS_MICROS.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = BigDecimal.valueOf(BUCKETS_MICROS[i]).movePointLeft(6).stripTrailingZeros().toPlainString();
+        }
+        return labels;
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static double valueOf(Object metric) {
+        if (metric instanceof Counter counter) {
+            return counter.get();
+        }
+        if (metric instanceof Gauge gauge) {
+            return gauge.get();
+        }
+        return ((DoubleSupplier) metric).getAsDouble();
+    }
+
+    private static String labelString(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Las etiquetas van por pares nombre/valor");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> out.append("\\\\");
+                    case '"' -> out.append("\\\"");
+                    case '\n' -> out.append("\\n");
+                    default -> out.append(c);
+                }
+            }
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    private enum Type { COUNTER, GAUGE, HISTOGRAM }
+
+    private static final class Family {
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> series = new ConcurrentSkipListMap<>();
+
+        Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public static final class Gauge {
+        private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(0));
+
+        public void set(double value) {
+            bits.set(Double.doubleToLongBits(value));
+        }
+
+        public double get() {
+            return Double.longBitsToDouble(bits.get());
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileOwnerAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Mueve el átomo moov delante de mdat para que el reproductor pueda empezar sin pedir el final del fichero.
+// No decodifica nada: copia las cajas en otro orden y corrige los desplazamientos de stco/co64.
+public class Mp4FastStart {
+
+    private static final Logger logger = LoggerFactory.getLogger(Mp4FastStart.class);
+    private static final Set<String> CONTAINERS = Set.of("moov", "trak", "mdia", "minf", "stbl");
+    private static final long COPY_CHUNK = 8L * 1024 * 1024;
+
+    private final long maxBytesPerSecond;
+
+    public Mp4FastStart(long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    // Solo lee las cabeceras de las cajas de primer nivel
+    public static boolean needsFastStart(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return layoutOf(channel).needsRelocation();
+        }
+    }
+
+    // Devuelve true si el fichero se ha reescrito
+    public boolean process(Path file) throws IOException, InterruptedException {
+        long sizeBefore = Files.size(file);
+        long mtimeBefore = Files.getLastModifiedTime(file).toMillis();
+        Path temp = file.resolveSibling("." + file.getFileName() + ".faststart.tmp");
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            Layout layout = layoutOf(source);
+            if (!layout.needsRelocation()) {
+                return false;
+            }
+            Box moov = layout.moov;
+            if (moov.size > Integer.MAX_VALUE) {
+                logger.info("moov demasiado grande para reubicarlo, se deja igual: {}", file);
+                return false;
+            }
+            long insertAt = layout.firstMdat.offset;
+            MappedByteBuffer moovMap = source.map(FileChannel.MapMode.READ_ONLY, moov.offset, moov.size);
+            List<ChunkTable> tables = new ArrayList<>();
+            if (!collectTables(moovMap, contentStart(moovMap), (int) moov.size, tables)) {
+                logger.info("moov comprimido o no válido, se deja igual: {}", file);
+                return false;
+            }
+            if (overflowsStco(moovMap, tables, insertAt, moov)) {
+                logger.info("Los desplazamientos stco no caben en 32 bits tras mover moov, se deja igual: {}", file);
+                return false;
+            }
+
+            try (FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                copy(source, 0, insertAt, target);
+                copy(source, moov.offset, moov.size, target);
+                copy(source, insertAt, moov.offset - insertAt, target);
+                copy(source, moov.end(), layout.fileSize - moov.end(), target);
+
+                // Se corrige el moov ya escrito en su sitio, mapeado en escritura sobre el fichero nuevo
+                MappedByteBuffer patched = target.map(FileChannel.MapMode.READ_WRITE, insertAt, moov.size);
+                for (ChunkTable table : tables) {
+                    table.shift(patched, insertAt, moov.offset, moov.size);
+                }
+                // Un tamaño 0 significa "hasta el final del fichero": delante de mdat se lo tragaría entero
+                if (patched.getInt(0) == 0) {
+                    patched.putInt(0, (int) moov.size);
+                }
+                patched.force();
+                target.force(true);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        // Si el fichero ha cambiado mientras se copiaba, la copia no vale
+        if (Files.size(file) != sizeBefore || Files.getLastModifiedTime(file).toMillis() != mtimeBefore) {
+            Files.deleteIfExists(temp);
+            logger.info("{} ha cambiado durante la reubicación de moov, se reintentará", file);
+            return false;
+        }
+        try {
+            copyAttributes(file, temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("moov movido al principio: {}", file);
+        return true;
+    }
+
+    // El fichero nuevo sustituye al original: hereda permisos, propietario y atributos extendidos.
+    // El mtime no se copia a propósito: los bytes cambian y con él cambia el ETag de las emisiones
+    private static void copyAttributes(Path from, Path to) throws IOException {
+        PosixFileAttributeView posix = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+        if (posix != null) {
+            PosixFileAttributes attributes = Files.readAttributes(from, PosixFileAttributes.class);
+            posix.setPermissions(attributes.permissions());
+            try {
+                posix.setOwner(attributes.owner());
+                posix.setGroup(attributes.group());
+            } catch (IOException e) {
+                // Sin privilegios para cambiar de dueño se deja el original intacto
+                throw new IOException("No se puede conservar el propietario de " + from, e);
+            }
+        } else {
+            FileOwnerAttributeView owner = Files.getFileAttributeView(to, FileOwnerAttributeView.class);
+            if (owner != null) {
+                owner.setOwner(Files.getOwner(from));
+            }
+        }
+        UserDefinedFileAttributeView source = Files.getFileAttributeView(from, UserDefinedFileAttributeView.class);
+        UserDefinedFileAttributeView target = Files.getFileAttributeView(to, UserDefinedFileAttributeView.class);
+        if (source != null && target != null) {
+            for (String name : source.list()) {
+                ByteBuffer value = ByteBuffer.allocate(source.size(name));
+                source.read(name, value);
+                value.flip();
+                target.write(name, value);
+            }
+        }
+    }
+
+    // Copia sin pasar por el heap, limitada a maxBytesPerSecond para no competir con las emisiones
+    private void copy(FileChannel source, long from, long count, FileChannel target)
+            throws IOException, InterruptedException {
+        long end = from + count;
+        while (from < end) {
+            long started = System.nanoTime();
+            long chunk = Math.min(COPY_CHUNK, end - from);
+            long copied = 0;
+            while (copied < chunk) {
+                long sent = source.transferTo(from + copied, chunk - copied, target);
+                if (sent <= 0) {
+                    throw new IOException("Fichero truncado durante la copia");
+                }
+                copied += sent;
+            }
+            from += copied;
+            if (maxBytesPerSecond > 0) {
+                long minNanos = copied * 1_000_000_000L / maxBytesPerSecond;
+                long sleepNanos = minNanos - (System.nanoTime() - started);
+                if (sleepNanos > 0) {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                }
+            }
+        }
+    }
+
+    private static Layout layoutOf(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(16);
+        Box moov = null;
+        Box firstMdat = null;
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            if (header.remaining() < 8) {
+                break;
+            }
+            long size = header.getInt() & 0xFFFFFFFFL;
+            String type = typeOf(header);
+            if (size == 1) {
+                if (header.remaining() < 8) {
+                    break;
+                }
+                size = header.getLong();
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < 8 || position + size > fileSize) {
+                // Caja corrupta o fichero a medio copiar: no se toca
+                return new Layout(fileSize, null, null);
+            }
+            Box box = new Box(type, position, size);
+            if (type.equals("moov") && moov == null) {
+                moov = box;
+            } else if (type.equals("mdat") && firstMdat == null) {
+                firstMdat = box;
+            }
+            position += size;
+        }
+        return new Layout(fileSize, moov, firstMdat);
+    }
+
+    // Recorre moov/trak/mdia/minf/stbl buscando las tablas de desplazamientos; false si hay algo que no sabemos mover
+    private static boolean collectTables(ByteBuffer moov, int from, int to, List<ChunkTable> tables) {
+        int position = from;
+        while (position + 8 <= to) {
+            long size = moov.getInt(position) & 0xFFFFFFFFL;
+            String type = typeAt(moov, position + 4);
+            int contentStart = position + 8;
+            if (size == 1) {
+                size = moov.getLong(position + 8);
+                contentStart = position + 16;
+            } else if (size == 0) {
+                size = to - position;
+            }
+            if (size < 8 || position + size > to) {
+                return false;
+            }
+            int end = (int) (position + size);
+            if (type.equals("cmov")) {
+                return false;
+            }
+            if (CONTAINERS.contains(type)) {
+                if (!collectTables(moov, contentStart, end, tables)) {
+                    return false;
+                }
+            } else if (type.equals("stco") || type.equals("co64")) {
+                int count = moov.getInt(contentStart + 4);
+                int entrySize = type.equals("co64") ? 8 : 4;
+                if (count < 0 || contentStart + 8 + (long) count * entrySize > end) {
+                    return false;
+                }
+                tables.add(new ChunkTable(contentStart + 8, count, entrySize == 8));
+            }
+            position = end;
+        }
+        return true;
+    }
+
+    // Salta la cabecera de moov (8 bytes, o 16 con tamaño de 64 bits)
+    private static int contentStart(ByteBuffer moov) {
+        return (moov.getInt(0) & 0xFFFFFFFFL) == 1 ? 16 : 8;
+    }
+
+    private static boolean overflowsStco(ByteBuffer moov, List<ChunkTable> tables, long insertAt, Box moovBox) {
+        for (ChunkTable table : tables) {
+            if (table.wide) {
+                continue;
+            }
+            for (int i = 0; i < table.count; i++) {
+                long offset = moov.getInt(table.position + i * 4) & 0xFFFFFFFFL;
+                if (offset >= insertAt && offset < moovBox.offset && offset + moovBox.size > 0xFFFFFFFFL) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String typeOf(ByteBuffer header) {
+        byte[] type = new byte[4];
+        header.get(type);
+        return new String(type, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String typeAt(ByteBuffer buffer, int position) {
+        byte[] type = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            type[i] = buffer.get(position + i);
+        }
+        return new String(type, StandardCharsets.ISO_8859_1);
+    }
+
+    private record Box(String type, long offset, long size) {
+        long end() {
+            return offset + size;
+        }
+    }
+
+    private record Layout(long fileSize, Box moov, Box firstMdat) {
+        boolean needsRelocation() {
+            return moov != null && firstMdat != null && moov.offset() > firstMdat.offset();
+        }
+    }
+
+    // Posición de las entradas dentro de moov; lo que estaba entre el punto de inserción y moov se desplaza
+    private record ChunkTable(int position, int count, boolean wide) {
+        void shift(ByteBuffer moov, long insertAt, long moovOffset, long moovSize) {
+            for (int i = 0; i < count; i++) {
+                if (wide) {
+                    int at = position + i * 8;
+                    long offset = moov.getLong(at);
+                    if (offset >= insertAt && offset < moovOffset) {
+                        moov.putLong(at, offset + moovSize);
+                    }
+                } else {
+                    int at = position + i * 4;
+                    long offset = moov.getInt(at) & 0xFFFFFFFFL;
+                    if (offset >= insertAt && offset < moovOffset) {
+                        moov.putInt(at, (int) (offset + moovSize));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.miapp.mediaserver;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class Navigator {
+
+    private static final Logger logger = LoggerFactory.getLogger(Navigator.class);
+
+    private static Navigator instance;
+
+    private final Stage stage;
+    private final Map<Screen, View> views = new EnumMap<>(Screen.class);
+    private View current;
+    private String token;
+
+    private Navigator(Stage stage) {
+        this.stage = stage;
+    }
+
+    public static synchronized void init(Stage stage) {
+        instance = new Navigator(stage);
+    }
+
+    public static synchronized Navigator get() {
+        if (instance == null) {
+            throw new IllegalStateException("Navigator no inicializado");
+        }
+        return instance;
+    }
+
+    // Fuera del hilo de JavaFX: deja las vistas parseadas para su primera visita
+    public static void preload(Screen... screens) {
+        Views.preload(Arrays.stream(screens).map(Screen::getFxml).toArray(String[]::new));
+    }
+
+    public String getToken() { return token; }
+    public void setToken(String token) {
+        String previous = this.token;
+        this.token = token;
+        // Una renovación no cambia de pantalla: la activa adopta el token sin reiniciarse
+        if (previous != null && token != null && !token.equals(previous) && current != null) {
+            current.controller().onTokenChanged(token);
+        }
+    }
+
+    public Stage getStage() { return stage; }
+
+    public void show(Screen screen) throws IOException {
+        View next = views.get(screen);
+        if (next == null) {
+            next = load(screen);
+            views.put(screen, next);
+        }
+        if (current != null && current != next) {
+            current.controller().onDeactivate();
+        }
+        current = next;
+        stage.setScene(next.scene());
+        stage.setTitle(screen.getTitle());
+        next.controller().onActivate(token);
+        logger.debug("Pantalla activa: {}", screen);
+    }
+
+    // Cierra la sesión: descarta las pantallas con datos del usuario
+    public void endSession() {
+        token = null;
+        views.entrySet().removeIf(entry -> {
+            if (!entry.getKey().isSessionScoped()) {
+                return false;
+            }
+            entry.getValue().controller().onDeactivate();
+            if (entry.getValue() == current) {
+                current = null;
+            }
+            return true;
+        });
+    }
+
+    private View load(Screen screen) throws IOException {
+        FXMLLoader loader = Views.load(screen.getFxml());
+        Parent root = loader.getRoot();
+        ScreenController controller = loader.getController();
+        return new View(new Scene(root, screen.getWidth(), screen.getHeight()), controller);
+    }
+
+    private record View(Scene scene, ScreenController controller) {
+    }
+}
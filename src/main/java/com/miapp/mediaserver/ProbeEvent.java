@@ -0,0 +1,25 @@
+package com.miapp.mediaserver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Resultado de sondear un servidor registrado
+@Name("com.miapp.mediaserver.Probe")
+@Label("Sondeo de servidor")
+@Category({"MediaServer", "Sondeo"})
+@StackTrace(false)
+public class ProbeEvent extends jdk.jfr.Event {
+
+    @Label("Destino")
+    String target;
+
+    @Label("En línea")
+    boolean online;
+
+    @Label("Tiempo de conexión")
+    @Timespan
+    long rttNanos;
+}
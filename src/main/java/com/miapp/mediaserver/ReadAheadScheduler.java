@@ -0,0 +1,191 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Lectura anticipada por sesión de reproducción (clave, dirección del espectador y fichero). Cuando las
+// lecturas van seguidas se carga en la caché de bloques la ventana siguiente, con un tamaño proporcional
+// al ritmo al que el espectador consume; un salto cancela lo pendiente.
+public class ReadAheadScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadAheadScheduler.class);
+    private static final long SESSION_IDLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final int SEQUENTIAL_READS_BEFORE_PREFETCH = 2;
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final BlockCache cache;
+    private final double windowSeconds;
+    private final long minWindowBytes;
+    private final long maxWindowBytes;
+    private final ThreadPoolExecutor workers;
+    private final Map<SessionKey, Session> sessions = new ConcurrentHashMap<>();
+    private long lastSweep = System.nanoTime();
+
+    public ReadAheadScheduler(BlockCache cache, double windowSeconds, long maxWindowBytes, int threads) {
+        this.cache = cache;
+        this.windowSeconds = windowSeconds;
+        this.minWindowBytes = 2L * cache.getBlockSize();
+        this.maxWindowBytes = Math.max(minWindowBytes, maxWindowBytes);
+        // Pocos hilos a propósito: en discos mecánicos más lecturas en paralelo solo añaden saltos del cabezal
+        this.workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256), runnable -> {
+                    Thread thread = new Thread(runnable, "read-ahead");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    // Devuelve null si no hay caché de bloques o la lectura anticipada está desactivada
+    public static ReadAheadScheduler fromConfig(ServerConfig config, BlockCache cache) {
+        if (cache == null || !config.getBoolean("readahead.enabled", true)) {
+            return null;
+        }
+        return new ReadAheadScheduler(cache,
+                config.getLong("readahead.windowMillis", 4_000) / 1000.0,
+                config.getLong("readahead.maxBytes", 16L * 1024 * 1024),
+                config.getInt("readahead.threads", 2));
+    }
+
+    public Session session(String key, InetAddress viewer, Path file, long size, long lastModified) {
+        long now = System.nanoTime();
+        sweep(now);
+        Session session = sessions.compute(new SessionKey(key, viewer, file), (k, existing) ->
+                existing != null && existing.size == size && existing.lastModified == lastModified
+                        ? existing : new Session(file, size, lastModified));
+        session.lastUsed = now;
+        return session;
+    }
+
+    public void stop() {
+        workers.shutdownNow();
+        sessions.clear();
+    }
+
+    private void sweep(long now) {
+        synchronized (this) {
+            if (now - lastSweep < SESSION_IDLE_NANOS) {
+                return;
+            }
+            lastSweep = now;
+        }
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            Session session = it.next();
+            if (now - session.lastUsed > SESSION_IDLE_NANOS) {
+                session.cancel();
+                it.remove();
+            }
+        }
+    }
+
+    private record SessionKey(String key, InetAddress viewer, Path file) {
+    }
+
+    public final class Session {
+        private final Path file;
+        private final long size;
+        private final long lastModified;
+        private volatile long lastUsed;
+
+        private long expectedPosition = -1;
+        private long lastLength;
+        private int sequentialReads;
+        private long lastReadNanos;
+        private double bytesPerSecond;
+        private long prefetchedUpTo;
+        // Cada salto abre una generación nueva; las tareas de la anterior se detienen en el siguiente bloque
+        private volatile int generation;
+        private boolean inFlight;
+
+        private Session(Path file, long size, long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        // Se llama antes de enviar cada tramo de [position, position + length)
+        public synchronized void onRead(long position, long length) {
+            long now = System.nanoTime();
+            // Un bloque de margen: los reproductores a veces repiten o saltan el final del rango anterior
+            if (expectedPosition >= 0 && Math.abs(position - expectedPosition) <= cache.getBlockSize()) {
+                sequentialReads++;
+                // Lo que tardó en consumirse el tramo anterior da el ritmo real del espectador
+                long elapsed = now - lastReadNanos;
+                if (elapsed > 0) {
+                    double rate = lastLength * 1e9 / elapsed;
+                    bytesPerSecond = bytesPerSecond == 0 ? rate
+                            : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * bytesPerSecond;
+                }
+            } else {
+                if (expectedPosition >= 0) {
+                    cancel();
+                }
+                sequentialReads = 0;
+                bytesPerSecond = 0;
+                prefetchedUpTo = 0;
+            }
+            expectedPosition = position + length;
+            lastLength = length;
+            lastReadNanos = now;
+            if (sequentialReads >= SEQUENTIAL_READS_BEFORE_PREFETCH) {
+                schedule(expectedPosition);
+            }
+        }
+
+        private long window() {
+            long window = (long) (bytesPerSecond * windowSeconds);
+            return Math.min(maxWindowBytes, Math.max(minWindowBytes, window));
+        }
+
+        // Se pide la ventana siguiente cuando lo ya cargado por delante baja de la mitad
+        private void schedule(long from) {
+            long window = window();
+            long target = Math.min(size, from + window);
+            long start = Math.max(from, prefetchedUpTo);
+            if (inFlight || start >= target || prefetchedUpTo - from > window / 2) {
+                return;
+            }
+            int taskGeneration = generation;
+            inFlight = true;
+            prefetchedUpTo = target;
+            try {
+                workers.execute(() -> prefetch(start, target - start, taskGeneration));
+            } catch (RejectedExecutionException e) {
+                // Cola llena: el espectador leerá de disco como antes
+                inFlight = false;
+                prefetchedUpTo = start;
+            }
+        }
+
+        private void prefetch(long position, long count, int taskGeneration) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                cache.prefetch(file, size, lastModified, channel, position, count,
+                        () -> generation != taskGeneration);
+            } catch (IOException e) {
+                logger.debug("Lectura anticipada fallida en {}: {}", file, e.getMessage());
+            } finally {
+                synchronized (this) {
+                    inFlight = false;
+                }
+            }
+        }
+
+        private void cancel() {
+            generation++;
+        }
+    }
+}
@@ -1,25 +1,17 @@
 package com.miapp.mediaserver;
 
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
-import javafx.stage.Stage;
-import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
-public class RegisterController {
+public class RegisterController implements ScreenController {
     private static final Logger logger = LoggerFactory.getLogger(RegisterController.class);
-    private static final String BASE_URL = "http://localhost:8080/api/auth";
-    private final OkHttpClient client = new OkHttpClient();
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final MediaServerApiClient api = MediaServerApiClient.shared();
 
     @FXML private TextField usernameField;
     @FXML private TextField emailField;
@@ -37,6 +29,13 @@ public class RegisterController {
         confirmPasswordField.setOnKeyPressed(event -> { if (event.getCode() == KeyCode.ENTER) handleRegister(); });
     }
 
+    @Override
+    public void onActivate(String token) {
+        passwordField.clear();
+        confirmPasswordField.clear();
+        statusLabel.setText("");
+    }
+
     @FXML
     private void handleRegister() {
         String username = usernameField.getText();
@@ -62,75 +61,57 @@ public class RegisterController {
             return;
         }
 
-        String registerJson = String.format("{\"user\":{\"username\":\"%s\",\"email\":\"%s\",\"password\":\"%s\"},\"confirmPassword\":\"%s\"}",
-                username, email, password, confirmPassword);
-        RequestBody registerBody = RequestBody.create(registerJson, MediaType.parse("application/json"));
-        Request registerRequest = new Request.Builder()
-                .url(BASE_URL + "/register")
-                .post(registerBody)
-                .build();
-
-        try (Response response = client.newCall(registerRequest).execute()) {
-            if (response.isSuccessful()) {
-                logger.info("Usuario registrado: {}", email);
-                statusLabel.setText("Registro exitoso, iniciando sesión...");
-                performLogin(email, password);
-            } else {
-                String errorMsg = response.body() != null ? response.body().string() : "Error desconocido";
-                logger.warn("Registro fallido para: {}, mensaje: {}", email, errorMsg);
-                statusLabel.setText("Error al registrar: " + errorMsg);
-            }
-        } catch (IOException e) {
-            logger.error("Error al registrar", e);
-            statusLabel.setText("Error de conexión");
-        }
+        registerButton.setDisable(true);
+        api.register(username, email, password, confirmPassword)
+                .thenCompose(ignored -> {
+                    logger.info("Usuario registrado: {}", email);
+                    statusLabel.setText("Registro exitoso, iniciando sesión...");
+                    return performLogin(email, password);
+                })
+                .whenComplete((ignored, error) -> {
+                    registerButton.setDisable(false);
+                    if (error == null) {
+                        return;
+                    }
+                    Throwable cause = MediaServerApiClient.unwrap(error);
+                    if (cause instanceof ApiException apiError) {
+                        logger.warn("Registro fallido para: {}, mensaje: {}", email, apiError.getBody());
+                        statusLabel.setText("Error al registrar: " + apiError.getBody());
+                    } else {
+                        logger.error("Error al registrar", cause);
+                        statusLabel.setText("Error de conexión");
+                    }
+                });
     }
 
-    private void performLogin(String email, String password) throws IOException {
-        String loginJson = String.format("{\"email\":\"%s\",\"password\":\"%s\"}", email, password);
-        RequestBody loginBody = RequestBody.create(loginJson, MediaType.parse("application/json"));
-        Request loginRequest = new Request.Builder()
-                .url(BASE_URL + "/login")
-                .post(loginBody)
-                .build();
-        try (Response response = client.newCall(loginRequest).execute()) {
-            if (response.isSuccessful()) {
-                String responseBody = response.body().string();
-                UserResponse user = mapper.readValue(responseBody, UserResponse.class);
-                String token = user.getToken();
-                logger.info("Login automático exitoso para: {}", email);
-                showMainMenu(token);
-            } else {
-                logger.warn("Login automático fallido para: {}", email);
-                statusLabel.setText("Registro OK, pero error al iniciar sesión");
-            }
-        }
+    private CompletableFuture<Void> performLogin(String email, String password) {
+        return AuthSession.shared().login(email, password)
+                .handle((user, error) -> {
+                    if (error != null) {
+                        logger.warn("Login automático fallido para: {}", email);
+                        statusLabel.setText("Registro OK, pero error al iniciar sesión");
+                        return null;
+                    }
+                    logger.info("Login automático exitoso para: {}", email);
+                    try {
+                        showMainMenu(user.getToken());
+                    } catch (IOException e) {
+                        logger.error("Error al cargar MainMenu.fxml", e);
+                        statusLabel.setText("Error al cargar el menú principal");
+                    }
+                    return null;
+                });
     }
 
     @FXML
     private void handleBack() throws IOException {
         logger.info("Volviendo a la ventana de bienvenida");
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/Welcome.fxml"));
-        Parent root = loader.load();
-        Stage stage = (Stage) backButton.getScene().getWindow();
-        stage.setScene(new Scene(root, 400, 300));
-        stage.setTitle("MediaServer");
+        Navigator.get().show(Screen.WELCOME);
     }
 
     private void showMainMenu(String token) throws IOException {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/MainMenu.fxml"));
-        Parent root = loader.load();
-        MainMenuController controller = loader.getController();
-        controller.setToken(token);
-        Stage stage = (Stage) registerButton.getScene().getWindow();
-        stage.setScene(new Scene(root, 400, 300));
-        stage.setTitle("MediaServer - Menú Principal");
-    }
-
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    public static class UserResponse {
-        private String token;
-        public String getToken() { return token; }
-        public void setToken(String token) { this.token = token; }
+        Navigator navigator = Navigator.get();
+        navigator.setToken(token);
+        navigator.show(Screen.MAIN_MENU);
     }
 }
\ No newline at end of file
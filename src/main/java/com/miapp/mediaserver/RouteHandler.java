@@ -0,0 +1,8 @@
+package com.miapp.mediaserver;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RouteHandler {
+    void handle(MediaRequest request, MediaResponse response) throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.miapp.mediaserver;
+
+public enum Screen {
+    WELCOME("/fxml/Welcome.fxml", "MediaServer", 400, 300, false),
+    LOGIN("/fxml/Login.fxml", "MediaServer - Inicio de Sesión", 400, 300, false),
+    REGISTER("/fxml/Register.fxml", "MediaServer - Registro", 400, 300, false),
+    MAIN_MENU("/fxml/MainMenu.fxml", "MediaServer - Menú Principal", 400, 300, true),
+    SERVER_REGISTRATION("/fxml/ServerRegistration.fxml", "MediaServer - Registro de Servidor", 400, 400, true);
+
+    private final String fxml;
+    private final String title;
+    private final double width;
+    private final double height;
+    // Las pantallas de sesión se descartan al cerrar sesión para no arrastrar datos de otro usuario
+    private final boolean sessionScoped;
+
+    Screen(String fxml, String title, double width, double height, boolean sessionScoped) {
+        this.fxml = fxml;
+        this.title = title;
+        this.width = width;
+        this.height = height;
+        this.sessionScoped = sessionScoped;
+    }
+
+    public String getFxml() { return fxml; }
+    public String getTitle() { return title; }
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+    public boolean isSessionScoped() { return sessionScoped; }
+}
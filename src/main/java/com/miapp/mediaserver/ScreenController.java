@@ -0,0 +1,16 @@
+package com.miapp.mediaserver;
+
+public interface ScreenController {
+
+    // Se llama cada vez que la pantalla pasa a primer plano; token es null sin sesión
+    default void onActivate(String token) {
+    }
+
+    // El token de la sesión se ha renovado mientras la pantalla está en primer plano
+    default void onTokenChanged(String token) {
+    }
+
+    // Debe detener cualquier trabajo en segundo plano iniciado en onActivate
+    default void onDeactivate() {
+    }
+}
@@ -0,0 +1,220 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ServerCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerCatalogCache.class);
+    private static final String CACHE_FILE = "servers.cache";
+    private static final int MAGIC = 0x4D534331; // "MSC1"
+    private static final int VERSION = 2;
+    private static final long SAVE_DELAY_MILLIS = 2_000;
+
+    private static ServerCatalogCache shared;
+
+    private final Path file;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Long, Entry> history = new HashMap<>();
+    private ScheduledFuture<?> pendingSave;
+    private Snapshot pending;
+    private long generation;
+
+    public ServerCatalogCache(Path file) {
+        this.file = file;
+    }
+
+    // Se guarda junto a token.txt, en el directorio de trabajo
+    public static synchronized ServerCatalogCache shared() {
+        if (shared == null) {
+            shared = new ServerCatalogCache(Paths.get(CACHE_FILE));
+        }
+        return shared;
+    }
+
+    // El archivo es de la máquina, no del usuario: solo se devuelve si lo guardó el mismo titular del token
+    public synchronized Snapshot load(String owner) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        boolean foreign = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Caché de servidores con formato desconocido, se ignora: {}", file);
+                return null;
+            }
+            String savedOwner = readNullable(in);
+            if (!owner.equals(savedOwner)) {
+                foreign = true;
+                return null;
+            }
+            String etag = readNullable(in);
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(in.readLong(), readNullable(in), readNullable(in), in.readInt(),
+                        readNullable(in), readNullable(in), in.readLong(), in.readLong());
+                entries.add(entry);
+                history.putIfAbsent(entry.id(), entry);
+            }
+            logger.info("Caché de servidores cargada: {} servidores", count);
+            return new Snapshot(owner, etag, savedAt, entries);
+        } catch (IOException e) {
+            logger.warn("No se pudo leer la caché de servidores {}", file, e);
+            return null;
+        } finally {
+            // El try con recursos ya ha cerrado el fichero al llegar aquí, así que se puede borrar
+            if (foreign) {
+                logger.info("La caché de servidores es de otra sesión, se descarta: {}", file);
+                delete();
+            }
+        }
+    }
+
+    // Historial de estado: última comprobación y última vez visto en línea
+    public synchronized void recordStatus(Map<Long, String> changes) {
+        long now = System.currentTimeMillis();
+        changes.forEach((id, status) -> {
+            Entry previous = history.get(id);
+            long lastOnlineAt = "ONLINE".equals(status) ? now : previous == null ? 0 : previous.lastOnlineAt();
+            history.put(id, new Entry(id, null, null, 0, null, status, lastOnlineAt, now));
+        });
+    }
+
+    // Copia la lista en el hilo llamante y la escribe en segundo plano, agrupando escrituras seguidas
+    public synchronized void save(List<ServerResponse> servers, String etag, String owner) {
+        List<Entry> entries = new ArrayList<>(servers.size());
+        for (ServerResponse server : servers) {
+            Entry known = history.get(server.getId());
+            entries.add(new Entry(server.getId(), server.getName(), server.getIpAddress(), server.getPort(),
+                    server.getStreamKey(), server.getStatus(),
+                    known == null ? 0 : known.lastOnlineAt(), known == null ? 0 : known.lastCheckedAt()));
+        }
+        pending = new Snapshot(owner, etag, System.currentTimeMillis(), entries);
+        if (pendingSave == null || pendingSave.isDone()) {
+            pendingSave = writer.schedule(this::flush, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void delete() {
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+        }
+        pending = null;
+        generation++;
+        history.clear();
+        try {
+            Files.deleteIfExists(file);
+            logger.info("Caché de servidores eliminada: {}", file);
+        } catch (IOException e) {
+            logger.warn("No se pudo eliminar la caché de servidores {}", file, e);
+        }
+    }
+
+    private void flush() {
+        Snapshot snapshot;
+        long snapshotGeneration;
+        synchronized (this) {
+            snapshot = pending;
+            snapshotGeneration = generation;
+            pending = null;
+        }
+        if (snapshot == null) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeNullable(out, snapshot.owner());
+            writeNullable(out, snapshot.etag());
+            out.writeLong(snapshot.savedAt());
+            out.writeInt(snapshot.entries().size());
+            for (Entry entry : snapshot.entries()) {
+                out.writeLong(entry.id());
+                writeNullable(out, entry.name());
+                writeNullable(out, entry.ipAddress());
+                out.writeInt(entry.port());
+                writeNullable(out, entry.streamKey());
+                writeNullable(out, entry.status());
+                out.writeLong(entry.lastOnlineAt());
+                out.writeLong(entry.lastCheckedAt());
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudo escribir la caché de servidores {}", file, e);
+            return;
+        }
+        try {
+            synchronized (this) {
+                // Si se borró la caché mientras escribíamos, la copia ya no es válida
+                if (snapshotGeneration != generation) {
+                    Files.deleteIfExists(temp);
+                    return;
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudo reemplazar la caché de servidores {}", file, e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public record Entry(long id, String name, String ipAddress, int port, String streamKey, String status,
+                        long lastOnlineAt, long lastCheckedAt) {
+
+        public ServerResponse toServer() {
+            ServerResponse server = new ServerResponse();
+            server.setId(id);
+            server.setName(name);
+            server.setIpAddress(ipAddress);
+            server.setPort(port);
+            server.setStreamKey(streamKey);
+            server.setStatus(status);
+            return server;
+        }
+    }
+
+    public record Snapshot(String owner, String etag, long savedAt, List<Entry> entries) {
+
+        public List<ServerResponse> servers() {
+            List<ServerResponse> servers = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                servers.add(entry.toServer());
+            }
+            return servers;
+        }
+    }
+}
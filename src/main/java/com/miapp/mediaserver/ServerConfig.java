@@ -0,0 +1,92 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Configuración del servidor: mediaserver.properties junto a token.txt, sobrescribible con -Dclave=valor
+public final class ServerConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerConfig.class);
+    private static final String CONFIG_FILE = "mediaserver.properties";
+
+    private static ServerConfig shared;
+
+    private final Properties properties;
+
+    public ServerConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static synchronized ServerConfig shared() {
+        if (shared == null) {
+            Properties properties = new Properties();
+            Path file = Paths.get(CONFIG_FILE);
+            if (Files.exists(file)) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                    logger.info("Configuración cargada desde {}", file.toAbsolutePath());
+                } catch (IOException e) {
+                    logger.warn("No se pudo leer {}, se usan valores por defecto", file, e);
+                }
+            }
+            shared = new ServerConfig(properties);
+        }
+        return shared;
+    }
+
+    public String get(String key, String defaultValue) {
+        return System.getProperty(key, properties.getProperty(key, defaultValue)).trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = get(key, Long.toString(defaultValue));
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Valor no numérico para {}: '{}', se usa {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(get(key, Boolean.toString(defaultValue)));
+    }
+
+    public List<Path> getPaths(String key, String defaultValue) {
+        List<Path> paths = new ArrayList<>();
+        for (String part : get(key, defaultValue).split(",")) {
+            if (!part.isBlank()) {
+                paths.add(Paths.get(part.trim()).toAbsolutePath().normalize());
+            }
+        }
+        return paths;
+    }
+
+    public int mediaPort() {
+        return getInt("media.port", 8081);
+    }
+
+    public List<Path> libraryRoots() {
+        return getPaths("media.library", "media");
+    }
+
+    // Backend de autenticación y registro; sin la barra final
+    public String apiBaseUrl() {
+        String url = get("api.baseUrl", "http://localhost:8080/api/auth");
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,27 @@
+package com.miapp.mediaserver;
+
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+// Fila de la lista de servidores: el DTO sigue siendo un objeto plano y aquí vive el estado observable
+public class ServerItem {
+
+    private final ServerResponse server;
+    private final StringProperty status = new SimpleStringProperty(this, "status");
+
+    public ServerItem(ServerResponse server) {
+        this.server = server;
+        status.set(server.getStatus());
+    }
+
+    public ServerResponse getServer() { return server; }
+    public Long getId() { return server.getId(); }
+    public String getName() { return server.getName(); }
+    public String getStatus() { return status.get(); }
+    public StringProperty statusProperty() { return status; }
+
+    public void setStatus(String status) {
+        server.setStatus(status);
+        this.status.set(status);
+    }
+}
@@ -0,0 +1,55 @@
+package com.miapp.mediaserver;
+
+import javafx.beans.value.ChangeListener;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+
+import java.util.function.Consumer;
+
+// Los nodos se crean una vez por celda; al reciclarla solo cambian color, texto y elemento
+public class ServerListCell extends ListCell<ServerItem> {
+
+    private final HBox hbox = new HBox(10);
+    private final Circle statusCircle = new Circle(5);
+    private final Label nameLabel = new Label();
+    private final ChangeListener<String> statusListener = (obs, oldStatus, newStatus) -> paintStatus(newStatus);
+    private ServerItem bound;
+
+    public ServerListCell(Consumer<ServerResponse> onEdit, Consumer<ServerResponse> onDelete) {
+        Button editButton = new Button("Editar");
+        editButton.setOnAction(event -> onEdit.accept(getItem().getServer()));
+        Button deleteButton = new Button("Borrar");
+        deleteButton.setOnAction(event -> onDelete.accept(getItem().getServer()));
+        hbox.getChildren().addAll(statusCircle, nameLabel, editButton, deleteButton);
+    }
+
+    @Override
+    protected void updateItem(ServerItem item, boolean empty) {
+        super.updateItem(item, empty);
+        if (bound != item) {
+            if (bound != null) {
+                bound.statusProperty().removeListener(statusListener);
+            }
+            bound = empty ? null : item;
+            if (bound != null) {
+                bound.statusProperty().addListener(statusListener);
+            }
+        }
+        if (empty || item == null) {
+            setText(null);
+            setGraphic(null);
+        } else {
+            paintStatus(item.getStatus());
+            nameLabel.setText(item.getName());
+            setGraphic(hbox);
+        }
+    }
+
+    private void paintStatus(String status) {
+        statusCircle.setFill("ONLINE".equals(status) ? Color.GREEN : Color.RED);
+    }
+}
@@ -0,0 +1,6 @@
+package com.miapp.mediaserver;
+
+import java.util.List;
+
+public record ServerListSnapshot(List<ServerResponse> servers, String etag, boolean notModified) {
+}
@@ -0,0 +1,103 @@
+package com.miapp.mediaserver;
+
+import javafx.collections.ObservableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public class ServerListSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerListSync.class);
+
+    private final MediaServerApiClient api;
+    private String etag;
+
+    public ServerListSync(MediaServerApiClient api) {
+        this.api = api;
+    }
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    // El ETag solo es válido para el contenido que ya se ha aplicado a items
+    public CompletableFuture<Result> refresh(String token, ObservableList<ServerItem> items) {
+        return api.fetchServers(token, etag).thenApply(snapshot -> {
+            if (snapshot.notModified()) {
+                logger.debug("Lista de servidores sin cambios (ETag {})", etag);
+                return new Result(0, 0, 0, true);
+            }
+            etag = snapshot.etag();
+            return apply(items, snapshot.servers());
+        });
+    }
+
+    // Aplica solo las altas, cambios y bajas, conservando el estado sondeado de cada fila
+    public static Result apply(ObservableList<ServerItem> items, List<ServerResponse> fresh) {
+        Map<Long, ServerResponse> incoming = new HashMap<>();
+        for (ServerResponse server : fresh) {
+            incoming.put(server.getId(), server);
+        }
+        int removed = 0;
+        Set<Long> present = new HashSet<>();
+        for (int i = items.size() - 1; i >= 0; i--) {
+            ServerItem current = items.get(i);
+            if (!incoming.containsKey(current.getId())) {
+                items.remove(i);
+                removed++;
+            } else {
+                present.add(current.getId());
+            }
+        }
+        int changed = 0;
+        for (int i = 0; i < items.size(); i++) {
+            ServerItem current = items.get(i);
+            ServerResponse update = incoming.get(current.getId());
+            if (!sameContent(current.getServer(), update)) {
+                update.setStatus(current.getStatus());
+                items.set(i, new ServerItem(update));
+                changed++;
+            }
+        }
+        int added = 0;
+        for (ServerResponse server : fresh) {
+            if (!present.contains(server.getId())) {
+                items.add(new ServerItem(server));
+                added++;
+            }
+        }
+        return new Result(added, changed, removed, false);
+    }
+
+    public static void upsert(ObservableList<ServerItem> items, ServerResponse server) {
+        for (int i = 0; i < items.size(); i++) {
+            ServerItem current = items.get(i);
+            if (Objects.equals(current.getId(), server.getId())) {
+                server.setStatus(current.getStatus());
+                items.set(i, new ServerItem(server));
+                return;
+            }
+        }
+        items.add(new ServerItem(server));
+    }
+
+    public static void remove(ObservableList<ServerItem> items, Long id) {
+        items.removeIf(server -> Objects.equals(server.getId(), id));
+    }
+
+    private static boolean sameContent(ServerResponse a, ServerResponse b) {
+        return a.getPort() == b.getPort()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getIpAddress(), b.getIpAddress())
+                && Objects.equals(a.getStreamKey(), b.getStreamKey());
+    }
+
+    public record Result(int added, int changed, int removed, boolean notModified) {
+    }
+}
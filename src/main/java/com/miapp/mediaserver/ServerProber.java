@@ -0,0 +1,245 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ServerProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerProber.class);
+    private static final int DEFAULT_TIMEOUT_MILLIS = 1000;
+    // Conexiones abiertas a la vez; evita agotar descriptores con flotas muy grandes
+    private static final int MAX_IN_FLIGHT = 512;
+
+    private static ServerProber shared;
+
+    private final int timeoutMillis;
+    private final MetricsRegistry metrics = MetricsRegistry.shared();
+    private final LatencyHistogram rtt = metrics.histogram("mediaserver_probe_rtt_seconds",
+            "Tiempo de conexión de los sondeos que responden");
+    private final MetricsRegistry.Counter probesOnline = metrics.counter("mediaserver_probes_total",
+            "Sondeos de servidores por resultado", "result", "online");
+    private final MetricsRegistry.Counter probesOffline = metrics.counter("mediaserver_probes_total",
+            "Sondeos de servidores por resultado", "result", "offline");
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "server-prober");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Las búsquedas DNS bloquean: un hilo virtual por nombre para hacerlas todas a la vez
+    private final ExecutorService resolver = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("server-prober-dns-", 0).factory());
+
+    public ServerProber(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static synchronized ServerProber shared() {
+        if (shared == null) {
+            shared = new ServerProber(DEFAULT_TIMEOUT_MILLIS);
+        }
+        return shared;
+    }
+
+    public CompletableFuture<Map<ServerResponse, Boolean>> probeAll(List<ServerResponse> servers) {
+        List<ServerResponse> snapshot = List.copyOf(servers);
+        return CompletableFuture.supplyAsync(() -> {
+            List<InetSocketAddress> addresses = new ArrayList<>(snapshot.size());
+            for (ServerResponse server : snapshot) {
+                addresses.add(InetSocketAddress.createUnresolved(server.getIpAddress(), server.getPort()));
+            }
+            boolean[] online = probe(addresses);
+            Map<ServerResponse, Boolean> results = new IdentityHashMap<>(snapshot.size());
+            for (int i = 0; i < snapshot.size(); i++) {
+                results.put(snapshot.get(i), online[i]);
+            }
+            return results;
+        }, executor);
+    }
+
+    // Ventana deslizante: en cuanto un sondeo termina o agota su timeout entra el siguiente, así que solo los
+    // destinos que no contestan ocupan plaza el timeout completo. Cada destino entra en cuanto su nombre
+    // resuelve: un DNS lento no retrasa a los demás
+    public boolean[] probe(List<InetSocketAddress> addresses) {
+        int count = addresses.size();
+        boolean[] online = new boolean[count];
+        long start = System.nanoTime();
+        long timeoutNanos = timeoutMillis * 1_000_000L;
+        long resolveDeadline = start + timeoutNanos;
+        InetSocketAddress[] resolved = new InetSocketAddress[count];
+        long[] started = new long[count];
+        SelectionKey[] keys = new SelectionKey[count];
+        // Índices en vuelo por orden de inicio: con un mismo timeout para todos, el primero es el que vence antes
+        ArrayDeque<Integer> inFlight = new ArrayDeque<>();
+        try (Selector selector = Selector.open()) {
+            Queue<Integer> ready = new ConcurrentLinkedQueue<>();
+            List<CompletableFuture<InetAddress>> lookups = resolveAll(addresses, resolved, ready, selector);
+            boolean expired = false;
+            int begun = 0;
+            while (begun < count || !inFlight.isEmpty()) {
+                if (!expired && System.nanoTime() - resolveDeadline >= 0) {
+                    expired = true;
+                    // Lo que no ha resuelto a tiempo cuenta como caído: completar a null lo encola sin dirección
+                    lookups.forEach(lookup -> lookup.complete(null));
+                }
+                Integer index;
+                while (inFlight.size() < MAX_IN_FLIGHT && (index = ready.poll()) != null) {
+                    begun++;
+                    started[index] = System.nanoTime();
+                    keys[index] = startConnect(selector, resolved[index], index, online);
+                    if (keys[index] != null) {
+                        inFlight.add(index);
+                    } else {
+                        recordProbe(addresses.get(index), online[index], System.nanoTime() - started[index]);
+                    }
+                }
+                if (begun == count && inFlight.isEmpty()) {
+                    break;
+                }
+                // Se espera al primer timeout de conexión o al de DNS; una resolución nueva despierta al selector.
+                // Se redondea hacia arriba: con menos de 1 ms por delante, select(0) esperaría sin límite y
+                // saltárselo dejaría el bucle girando sin recoger las conexiones ya completadas
+                long waitUntil = expired ? System.nanoTime() + timeoutNanos : resolveDeadline;
+                if (!inFlight.isEmpty()) {
+                    waitUntil = Math.min(waitUntil, started[inFlight.peek()] + timeoutNanos);
+                }
+                long waitNanos = waitUntil - System.nanoTime();
+                if (waitNanos > 0) {
+                    selector.select((waitNanos + 999_999) / 1_000_000);
+                } else {
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    int done = (Integer) key.attachment();
+                    try {
+                        online[done] = channel.finishConnect();
+                    } catch (IOException e) {
+                        online[done] = false;
+                    }
+                    closeQuietly(channel);
+                    keys[done] = null;
+                    inFlight.remove(done);
+                    recordProbe(addresses.get(done), online[done], System.nanoTime() - started[done]);
+                }
+                // Lo que lleva más de un timeout sin respuesta se da por caído y deja su plaza
+                long now = System.nanoTime();
+                while (!inFlight.isEmpty() && now - started[inFlight.peek()] >= timeoutNanos) {
+                    int late = inFlight.poll();
+                    closeQuietly(keys[late].channel());
+                    keys[late] = null;
+                    recordProbe(addresses.get(late), false, -1);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error al abrir el selector para el sondeo de servidores", e);
+        }
+        logger.debug("Sondeo de {} servidores completado en {} ms", count, (System.nanoTime() - start) / 1_000_000);
+        return online;
+    }
+
+    // Resuelve cada nombre distinto una vez y todos a la vez, fuera del bucle del selector. Al terminar cada
+    // búsqueda sus índices pasan a la cola (sin dirección si no resolvió) y se despierta al selector
+    private List<CompletableFuture<InetAddress>> resolveAll(List<InetSocketAddress> addresses,
+                                                            InetSocketAddress[] resolved, Queue<Integer> ready,
+                                                            Selector selector) {
+        Map<String, List<Integer>> byHost = new HashMap<>();
+        for (int i = 0; i < addresses.size(); i++) {
+            byHost.computeIfAbsent(addresses.get(i).getHostString(), host -> new ArrayList<>()).add(i);
+        }
+        List<CompletableFuture<InetAddress>> lookups = new ArrayList<>(byHost.size());
+        byHost.forEach((host, indices) -> {
+            CompletableFuture<InetAddress> lookup = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return InetAddress.getByName(host);
+                } catch (UnknownHostException e) {
+                    return null;
+                }
+            }, resolver);
+            // La cola concurrente publica resolved[index] al hilo del selector
+            lookup.whenComplete((address, error) -> {
+                for (int index : indices) {
+                    if (address != null) {
+                        resolved[index] = new InetSocketAddress(address, addresses.get(index).getPort());
+                    }
+                    ready.add(index);
+                }
+                selector.wakeup();
+            });
+            lookups.add(lookup);
+        });
+        return lookups;
+    }
+
+    private SelectionKey startConnect(Selector selector, InetSocketAddress address, int index, boolean[] online) {
+        if (address == null) {
+            return null;
+        }
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                online[index] = true;
+                closeQuietly(channel);
+                return null;
+            }
+            return channel.register(selector, SelectionKey.OP_CONNECT, index);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            return null;
+        }
+    }
+
+    // rttNanos < 0 si no respondió. El destino solo va en el evento JFR: como etiqueta de /metrics dejaría
+    // una serie por cada servidor que haya existido alguna vez
+    private void recordProbe(InetSocketAddress address, boolean online, long rttNanos) {
+        (online ? probesOnline : probesOffline).increment();
+        if (online) {
+            rtt.recordNanos(rttNanos);
+        }
+        if (metrics.isJfrEnabled()) {
+            ProbeEvent event = new ProbeEvent();
+            if (event.shouldCommit()) {
+                event.target = address.getHostString() + ":" + address.getPort();
+                event.online = online;
+                event.rttNanos = rttNanos;
+                event.commit();
+            }
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // El canal ya no nos interesa
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.miapp.mediaserver;
+
+public class ServerResponse {
+    private Long id;
+    private String name;
+    private String ipAddress;
+    private int port;
+    private String streamKey;
+    private String status;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getIpAddress() { return ipAddress; }
+    public void setIpAddress(String ipAddress) { this.ipAddress = ipAddress; }
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+    public String getStreamKey() { return streamKey; }
+    public void setStreamKey(String streamKey) { this.streamKey = streamKey; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+}
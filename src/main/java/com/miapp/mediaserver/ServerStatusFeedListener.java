@@ -0,0 +1,7 @@
+package com.miapp.mediaserver;
+
+public interface ServerStatusFeedListener {
+    void onOpen();
+    void onStatus(ServerStatusEvent event);
+    void onClosed(Throwable error);
+}
@@ -0,0 +1,274 @@
+package com.miapp.mediaserver;
+
+import okhttp3.sse.EventSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class ServerStatusMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerStatusMonitor.class);
+    private static final long TICK_MILLIS = 1_000;
+    private static final long ONLINE_INTERVAL_MILLIS = 10_000;
+    private static final long MAX_OFFLINE_INTERVAL_MILLIS = 10 * 60_000;
+    private static final long MIN_RECONNECT_MILLIS = 5_000;
+    private static final long MAX_RECONNECT_MILLIS = 5 * 60_000;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "server-status");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MediaServerApiClient api;
+    private final ServerProber prober;
+    private final Executor callbackExecutor;
+    private final Consumer<Map<Long, String>> listener;
+
+    private final Map<Long, PollState> states = new HashMap<>();
+    private String token;
+    private EventSource eventSource;
+    // Identifica la suscripción vigente: los avisos de una cancelada (p. ej. al cambiar de token) se ignoran
+    private long subscription;
+    private ScheduledFuture<?> pollTask;
+    private ScheduledFuture<?> reconnectTask;
+    private long reconnectDelayMillis = MIN_RECONNECT_MILLIS;
+    private boolean pushActive;
+    private boolean probeInProgress;
+    private boolean running;
+
+    public ServerStatusMonitor(MediaServerApiClient api, ServerProber prober, Executor callbackExecutor,
+                               Consumer<Map<Long, String>> listener) {
+        this.api = api;
+        this.prober = prober;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+    }
+
+    public synchronized void start(String token) {
+        if (running) {
+            return;
+        }
+        this.token = token;
+        running = true;
+        pollTask = scheduler.scheduleWithFixedDelay(this::pollDueServers, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        subscribe();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        pushActive = false;
+        if (pollTask != null) {
+            pollTask.cancel(false);
+            pollTask = null;
+        }
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
+        if (eventSource != null) {
+            eventSource.cancel();
+            eventSource = null;
+        }
+    }
+
+    // Token renovado: la suscripción abierta sigue con el anterior, así que se rehace con el nuevo
+    public synchronized void setToken(String token) {
+        if (token.equals(this.token)) {
+            return;
+        }
+        this.token = token;
+        if (!running) {
+            return;
+        }
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
+        if (eventSource != null) {
+            eventSource.cancel();
+            eventSource = null;
+        }
+        pushActive = false;
+        reconnectDelayMillis = MIN_RECONNECT_MILLIS;
+        subscribe();
+    }
+
+    // Sincroniza el conjunto vigilado con la lista actual; los servidores nuevos se sondean de inmediato
+    public synchronized void setServers(List<ServerResponse> servers) {
+        Map<Long, PollState> previous = new HashMap<>(states);
+        states.clear();
+        for (ServerResponse server : servers) {
+            PollState state = previous.get(server.getId());
+            if (state == null || !state.sameEndpoint(server)) {
+                state = new PollState(server.getId(), server.getIpAddress(), server.getPort());
+            }
+            states.put(server.getId(), state);
+        }
+    }
+
+    private synchronized void subscribe() {
+        if (!running) {
+            return;
+        }
+        long id = ++subscription;
+        eventSource = api.subscribeServerStatus(token, new ServerStatusFeedListener() {
+            @Override
+            public void onOpen() {
+                onFeedOpen(id);
+            }
+
+            @Override
+            public void onStatus(ServerStatusEvent event) {
+                onPushedStatus(id, event);
+            }
+
+            @Override
+            public void onClosed(Throwable error) {
+                onFeedClosed(id, error);
+            }
+        });
+    }
+
+    private synchronized void onFeedOpen(long id) {
+        if (!running || id != subscription) {
+            return;
+        }
+        logger.info("Suscrito a los cambios de estado de los servidores, sondeo periódico en pausa");
+        pushActive = true;
+        reconnectDelayMillis = MIN_RECONNECT_MILLIS;
+    }
+
+    private synchronized void onPushedStatus(long id, ServerStatusEvent event) {
+        PollState state = states.get(event.getId());
+        if (id != subscription || state == null || event.getStatus() == null) {
+            return;
+        }
+        state.lastStatus = event.getStatus();
+        publish(Map.of(event.getId(), event.getStatus()));
+    }
+
+    private synchronized void onFeedClosed(long id, Throwable error) {
+        if (id != subscription) {
+            return;
+        }
+        eventSource = null;
+        if (!running) {
+            return;
+        }
+        if (pushActive) {
+            logger.warn("Suscripción de estado cerrada, se vuelve al sondeo adaptativo");
+        } else {
+            logger.debug("Suscripción de estado no disponible: {}", error == null ? "cerrada" : error.getMessage());
+        }
+        pushActive = false;
+        reconnectTask = scheduler.schedule(this::subscribe, withJitter(reconnectDelayMillis), TimeUnit.MILLISECONDS);
+        reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_MILLIS);
+    }
+
+    private synchronized void pollDueServers() {
+        if (!running || pushActive || probeInProgress) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PollState> due = new ArrayList<>();
+        List<ServerResponse> targets = new ArrayList<>();
+        for (PollState state : states.values()) {
+            if (state.nextProbeAt <= now) {
+                due.add(state);
+                targets.add(state.toTarget());
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        probeInProgress = true;
+        prober.probeAll(targets).whenComplete((results, error) -> {
+            if (error != null) {
+                logger.error("Error al comprobar el estado de los servidores", error);
+            }
+            onProbeResults(due, targets, results);
+        });
+    }
+
+    private synchronized void onProbeResults(List<PollState> due, List<ServerResponse> targets,
+                                             Map<ServerResponse, Boolean> results) {
+        probeInProgress = false;
+        if (results == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, String> changes = new HashMap<>();
+        for (int i = 0; i < due.size(); i++) {
+            PollState state = due.get(i);
+            boolean online = Boolean.TRUE.equals(results.get(targets.get(i)));
+            state.reschedule(online, now);
+            String status = online ? "ONLINE" : "OFFLINE";
+            if (!status.equals(state.lastStatus) && states.get(state.id) == state) {
+                state.lastStatus = status;
+                changes.put(state.id, status);
+            }
+        }
+        if (!changes.isEmpty()) {
+            publish(changes);
+        }
+    }
+
+    private void publish(Map<Long, String> changes) {
+        callbackExecutor.execute(() -> listener.accept(changes));
+    }
+
+    private static long withJitter(long millis) {
+        return (long) (millis * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+    }
+
+    private static final class PollState {
+        private final Long id;
+        private final String ipAddress;
+        private final int port;
+        private long nextProbeAt;
+        private int failures;
+        private String lastStatus;
+
+        PollState(Long id, String ipAddress, int port) {
+            this.id = id;
+            this.ipAddress = ipAddress;
+            this.port = port;
+        }
+
+        boolean sameEndpoint(ServerResponse server) {
+            return port == server.getPort() && ipAddress != null && ipAddress.equals(server.getIpAddress());
+        }
+
+        ServerResponse toTarget() {
+            ServerResponse target = new ServerResponse();
+            target.setId(id);
+            target.setIpAddress(ipAddress);
+            target.setPort(port);
+            return target;
+        }
+
+        // Servidores caídos: retroceso exponencial con jitter para no sondearlos en bloque
+        void reschedule(boolean online, long now) {
+            if (online) {
+                failures = 0;
+                nextProbeAt = now + withJitter(ONLINE_INTERVAL_MILLIS);
+            } else {
+                failures = Math.min(failures + 1, 16);
+                long backoff = Math.min(ONLINE_INTERVAL_MILLIS << (failures - 1), MAX_OFFLINE_INTERVAL_MILLIS);
+                nextProbeAt = now + withJitter(backoff);
+            }
+        }
+    }
+}
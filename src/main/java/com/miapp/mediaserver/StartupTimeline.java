@@ -0,0 +1,58 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class StartupTimeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimeline.class);
+
+    private final long originNanos = System.nanoTime();
+    private final long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    public Runnable timed(String name, Runnable task) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                record(name, start, System.nanoTime());
+            }
+        };
+    }
+
+    public <T> CompletableFuture<T> track(String name, CompletableFuture<T> future) {
+        long start = System.nanoTime();
+        future.whenComplete((result, error) -> record(name, start, System.nanoTime()));
+        return future;
+    }
+
+    public void mark(String name) {
+        long now = System.nanoTime();
+        record(name, now, now);
+    }
+
+    // Una línea por fase, ordenadas por inicio, relativas al arranque de la aplicación
+    public synchronized void log() {
+        logger.info("Arranque: JVM en marcha desde hace {} ms al iniciar la aplicación", jvmUptimeMillis);
+        phases.stream()
+                .sorted(Comparator.comparingLong(Phase::startNanos))
+                .forEach(phase -> logger.info("Arranque: {} +{} ms ({} ms) [{}]", phase.name(),
+                        (phase.startNanos() - originNanos) / 1_000_000,
+                        (phase.endNanos() - phase.startNanos()) / 1_000_000, phase.thread()));
+    }
+
+    private synchronized void record(String name, long startNanos, long endNanos) {
+        phases.add(new Phase(name, startNanos, endNanos, Thread.currentThread().getName()));
+    }
+
+    private record Phase(String name, long startNanos, long endNanos, String thread) {
+    }
+}
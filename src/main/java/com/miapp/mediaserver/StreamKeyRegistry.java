@@ -0,0 +1,53 @@
+package com.miapp.mediaserver;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Objects;
+
+// Claves de emisión de los servidores registrados desde esta máquina
+public class StreamKeyRegistry {
+
+    public static final String HEADER = "X-Stream-Key";
+    public static final String QUERY_PARAM = "key";
+
+    private static StreamKeyRegistry shared;
+
+    private volatile List<byte[]> keys = List.of();
+
+    public static synchronized StreamKeyRegistry shared() {
+        if (shared == null) {
+            shared = new StreamKeyRegistry();
+        }
+        return shared;
+    }
+
+    public void setKeys(List<String> streamKeys) {
+        keys = streamKeys.stream()
+                .filter(Objects::nonNull)
+                .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                .toList();
+    }
+
+    public boolean hasKeys() {
+        return !keys.isEmpty();
+    }
+
+    public static String keyOf(MediaRequest request) {
+        String key = request.header(HEADER);
+        return key != null ? key : request.queryParam(QUERY_PARAM);
+    }
+
+    // Comparación en tiempo constante para no filtrar la clave por tiempos de respuesta
+    public boolean isValid(String candidate) {
+        if (candidate == null) {
+            return false;
+        }
+        byte[] bytes = candidate.getBytes(StandardCharsets.UTF_8);
+        boolean valid = false;
+        for (byte[] key : keys) {
+            valid |= MessageDigest.isEqual(key, bytes);
+        }
+        return valid;
+    }
+}
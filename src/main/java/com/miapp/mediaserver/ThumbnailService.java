@@ -0,0 +1,254 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Miniaturas JPEG en varios tamaños. La caché en disco se direcciona por el hash del contenido,
+// así que dos copias de la misma foto comparten miniatura y el ETag es fuerte por construcción.
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final Path cacheDir;
+    private final Set<Integer> sizes;
+    private final ThreadPoolExecutor workers;
+    // Un único render en curso por miniatura; el resto de peticiones espera al mismo resultado
+    private final Map<String, CompletableFuture<Thumbnail>> inFlight = new ConcurrentHashMap<>();
+    private final Map<HashKey, String> contentHashes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<HashKey, String> eldest) {
+            return size() > 10_000;
+        }
+    };
+
+    public ThumbnailService(Path cacheDir, Set<Integer> sizes, int threads, int queueSize) {
+        this.cacheDir = cacheDir;
+        this.sizes = Set.copyOf(sizes);
+        this.workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnails");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    public static ThumbnailService fromConfig(ServerConfig config) {
+        Set<Integer> sizes = new TreeSet<>();
+        for (String size : config.get("thumbnails.sizes", "160,320,640").split(",")) {
+            sizes.add(Integer.parseInt(size.trim()));
+        }
+        return new ThumbnailService(Paths.get(config.get("thumbnails.dir", "thumbnails")), sizes,
+                config.getInt("thumbnails.workers", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                config.getInt("thumbnails.queue", 256));
+    }
+
+    public boolean isSupportedSize(int size) {
+        return sizes.contains(size);
+    }
+
+    public record Thumbnail(Path file, String etag) {
+    }
+
+    // Bloquea hasta tener la miniatura; se llama desde los hilos virtuales del servidor
+    public Thumbnail get(Path source, int size) throws IOException {
+        HashKey key = new HashKey(source, Files.getLastModifiedTime(source).toMillis(), Files.size(source));
+        String hash;
+        synchronized (contentHashes) {
+            hash = contentHashes.get(key);
+        }
+        if (hash != null) {
+            Thumbnail cached = thumbnailOf(hash, size);
+            if (Files.exists(cached.file())) {
+                return cached;
+            }
+        }
+        // Hash y render van juntos en el pool: las peticiones simultáneas esperan al mismo trabajo
+        String flightKey = key + "#" + size;
+        CompletableFuture<Thumbnail> created = new CompletableFuture<>();
+        CompletableFuture<Thumbnail> render = inFlight.putIfAbsent(flightKey, created);
+        if (render == null) {
+            render = created;
+            try {
+                workers.execute(() -> {
+                    try {
+                        created.complete(render(key, size));
+                    } catch (IOException | RuntimeException e) {
+                        created.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(flightKey, created);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(flightKey, created);
+                throw new HttpException(503, "Demasiadas miniaturas pendientes");
+            }
+        }
+        try {
+            return render.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando la miniatura", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        }
+    }
+
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    private Thumbnail thumbnailOf(String hash, int size) {
+        String name = hash + "-" + size;
+        return new Thumbnail(cacheDir.resolve(hash.substring(0, 2)).resolve(name + ".jpg"), "\"" + name + "\"");
+    }
+
+    private Thumbnail render(HashKey key, int size) throws IOException {
+        Thumbnail thumbnail = thumbnailOf(contentHash(key), size);
+        if (!Files.exists(thumbnail.file())) {
+            renderTo(key.path(), thumbnail.file(), size);
+        }
+        return thumbnail;
+    }
+
+    private void renderTo(Path source, Path target, int size) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage image = readSubsampled(source, size);
+        BufferedImage scaled = scale(image, size);
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            writeJpeg(scaled, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        logger.debug("Miniatura {} px de {} generada en {} ms", size, source, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // El decodificador descarta filas y columnas al leer: una foto de 24 MP no llega a ocupar memoria entera
+    private static BufferedImage readSubsampled(Path source, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                throw new HttpException(415, "Formato de imagen no soportado");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new HttpException(415, "Formato de imagen no soportado");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Se deja el doble del tamaño final para que el escalado posterior suavice
+                int subsampling = Math.max(1, Math.min(width, height) / (size * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // size es el lado mayor de la miniatura; nunca se amplía
+    private static BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // Las transparencias se aplanan sobre blanco: JPEG no tiene canal alfa
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // SHA-256 del contenido, recordado por ruta y mtime para no releer la foto en cada petición
+    private String contentHash(HashKey key) throws IOException {
+        synchronized (contentHashes) {
+            String known = contentHashes.get(key);
+            if (known != null) {
+                return known;
+            }
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(key.path())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        synchronized (contentHashes) {
+            contentHashes.put(key, hash);
+        }
+        return hash;
+    }
+
+    private record HashKey(Path path, long lastModified, long size) {
+    }
+}
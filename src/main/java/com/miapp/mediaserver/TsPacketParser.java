@@ -0,0 +1,166 @@
+package com.miapp.mediaserver;
+
+// Lo justo de MPEG-TS para segmentar: PAT/PMT para localizar la pista de vídeo, PTS de cada PES
+// y si el paquete empieza un fotograma clave (random_access_indicator o NAL IDR/IRAP).
+public class TsPacketParser {
+
+    public static final int PACKET_SIZE = 188;
+    public static final int SYNC_BYTE = 0x47;
+    public static final long NO_PTS = -1;
+
+    private static final int STREAM_TYPE_MPEG2_VIDEO = 0x02;
+    private static final int STREAM_TYPE_H264 = 0x1B;
+    private static final int STREAM_TYPE_HEVC = 0x24;
+
+    private int pmtPid = -1;
+    private int cutPid = -1;
+    private int cutStreamType;
+    private byte[] pat;
+    private byte[] pmt;
+
+    // Resultado del último paquete analizado
+    private boolean cutPoint;
+    private long pts = NO_PTS;
+
+    public void parse(byte[] packet) {
+        cutPoint = false;
+        pts = NO_PTS;
+        int pid = pid(packet);
+        boolean unitStart = (packet[1] & 0x40) != 0;
+        int adaptation = (packet[3] >> 4) & 0x3;
+        boolean randomAccess = false;
+        int payload = 4;
+        if (adaptation == 2 || adaptation == 3) {
+            int length = packet[4] & 0xFF;
+            randomAccess = length > 0 && (packet[5] & 0x40) != 0;
+            payload = 5 + length;
+        }
+        if (adaptation == 2 || payload >= PACKET_SIZE || !unitStart) {
+            return;
+        }
+        if (pid == 0) {
+            pat = packet.clone();
+            parsePat(packet, payload);
+        } else if (pid == pmtPid) {
+            pmt = packet.clone();
+            parsePmt(packet, payload);
+        } else if (pid == cutPid) {
+            int esStart = parsePes(packet, payload);
+            boolean video = isVideo(cutStreamType);
+            cutPoint = !video || randomAccess || (esStart > 0 && startsKeyframe(packet, esStart));
+        }
+    }
+
+    public boolean isCutPoint() {
+        return cutPoint;
+    }
+
+    public long getPts() {
+        return pts;
+    }
+
+    // PAT y PMT más recientes: se repiten al principio de cada segmento para que sea decodificable solo
+    public byte[] getPat() {
+        return pat;
+    }
+
+    public byte[] getPmt() {
+        return pmt;
+    }
+
+    public static int pid(byte[] packet) {
+        return ((packet[1] & 0x1F) << 8) | (packet[2] & 0xFF);
+    }
+
+    private void parsePat(byte[] packet, int payload) {
+        int table = payload + 1 + (packet[payload] & 0xFF);
+        if (table + 8 > PACKET_SIZE) {
+            return;
+        }
+        int sectionEnd = Math.min(PACKET_SIZE, table + 3 + sectionLength(packet, table)) - 4;
+        for (int i = table + 8; i + 4 <= sectionEnd; i += 4) {
+            int program = ((packet[i] & 0xFF) << 8) | (packet[i + 1] & 0xFF);
+            if (program != 0) {
+                pmtPid = ((packet[i + 2] & 0x1F) << 8) | (packet[i + 3] & 0xFF);
+                return;
+            }
+        }
+    }
+
+    // Se corta por la primera pista de vídeo; sin vídeo, por la primera de audio
+    private void parsePmt(byte[] packet, int payload) {
+        int table = payload + 1 + (packet[payload] & 0xFF);
+        if (table + 12 > PACKET_SIZE) {
+            return;
+        }
+        int sectionEnd = Math.min(PACKET_SIZE, table + 3 + sectionLength(packet, table)) - 4;
+        int programInfoLength = ((packet[table + 10] & 0x0F) << 8) | (packet[table + 11] & 0xFF);
+        int firstPid = -1;
+        int firstType = 0;
+        for (int i = table + 12 + programInfoLength; i + 5 <= sectionEnd; ) {
+            int streamType = packet[i] & 0xFF;
+            int elementaryPid = ((packet[i + 1] & 0x1F) << 8) | (packet[i + 2] & 0xFF);
+            int infoLength = ((packet[i + 3] & 0x0F) << 8) | (packet[i + 4] & 0xFF);
+            if (isVideo(streamType)) {
+                cutPid = elementaryPid;
+                cutStreamType = streamType;
+                return;
+            }
+            if (firstPid < 0) {
+                firstPid = elementaryPid;
+                firstType = streamType;
+            }
+            i += 5 + infoLength;
+        }
+        cutPid = firstPid;
+        cutStreamType = firstType;
+    }
+
+    private static int sectionLength(byte[] packet, int table) {
+        return ((packet[table + 1] & 0x0F) << 8) | (packet[table + 2] & 0xFF);
+    }
+
+    // Devuelve dónde empieza el flujo elemental dentro del paquete, o -1
+    private int parsePes(byte[] packet, int payload) {
+        if (payload + 9 > PACKET_SIZE || packet[payload] != 0 || packet[payload + 1] != 0 || packet[payload + 2] != 1) {
+            return -1;
+        }
+        int flags = packet[payload + 7] & 0xFF;
+        int headerLength = packet[payload + 8] & 0xFF;
+        if ((flags & 0x80) != 0 && payload + 14 <= PACKET_SIZE) {
+            int p = payload + 9;
+            pts = (((long) (packet[p] & 0x0E)) << 29)
+                    | ((long) (packet[p + 1] & 0xFF) << 22)
+                    | ((long) (packet[p + 2] & 0xFE) << 14)
+                    | ((long) (packet[p + 3] & 0xFF) << 7)
+                    | ((packet[p + 4] & 0xFE) >> 1);
+        }
+        int esStart = payload + 9 + headerLength;
+        return esStart < PACKET_SIZE ? esStart : -1;
+    }
+
+    private boolean startsKeyframe(byte[] packet, int from) {
+        for (int i = from; i + 3 < PACKET_SIZE; i++) {
+            if (packet[i] != 0 || packet[i + 1] != 0 || packet[i + 2] != 1) {
+                continue;
+            }
+            int header = packet[i + 3] & 0xFF;
+            if (cutStreamType == STREAM_TYPE_H264) {
+                int type = header & 0x1F;
+                if (type == 5 || type == 7) {
+                    return true;
+                }
+            } else if (cutStreamType == STREAM_TYPE_HEVC) {
+                int type = (header >> 1) & 0x3F;
+                if ((type >= 16 && type <= 21) || type == 32 || type == 33) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isVideo(int streamType) {
+        return streamType == STREAM_TYPE_H264 || streamType == STREAM_TYPE_HEVC || streamType == STREAM_TYPE_MPEG2_VIDEO;
+    }
+}
@@ -0,0 +1,107 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Valida los tokens Bearer de las subidas contra el backend. AuthSession recuerda los válidos un rato
+// para no consultar al backend en cada trozo. Además el token tiene que ser del propietario de este servidor:
+// su lista de /servers debe incluir una de las claves de emisión registradas desde esta máquina.
+public class UploadAuthorizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadAuthorizer.class);
+    private static final long VALIDATION_TIMEOUT_SECONDS = 10;
+    private static final int MAX_CACHED_TOKENS = 1_000;
+
+    private final AuthSession session;
+    private final MediaServerApiClient api;
+    private final StreamKeyRegistry streamKeys;
+    private final long ownerCacheMillis;
+    // Claves de emisión de los servidores de cada token (por su hash), recordadas tanto como su validez
+    private final Map<String, OwnedKeys> ownedKeys = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, OwnedKeys> eldest) {
+            return size() > MAX_CACHED_TOKENS;
+        }
+    };
+
+    public UploadAuthorizer(AuthSession session, MediaServerApiClient api, StreamKeyRegistry streamKeys,
+                            long ownerCacheMillis) {
+        this.session = session;
+        this.api = api;
+        this.streamKeys = streamKeys;
+        this.ownerCacheMillis = ownerCacheMillis;
+    }
+
+    // El cliente propio entrega los resultados en el hilo que completa la llamada, no en el de JavaFX
+    public static UploadAuthorizer fromConfig(ServerConfig config) {
+        MediaServerApiClient api = new MediaServerApiClient(Runnable::run);
+        return new UploadAuthorizer(AuthSession.fromConfig(config, api), api, StreamKeyRegistry.shared(),
+                config.getLong("auth.tokenCacheSeconds", config.getLong("uploads.tokenCacheSeconds", 60)) * 1000);
+    }
+
+    // Devuelve quién sube, para que cada uno solo retome sus propias subidas
+    public String authorize(MediaRequest request) throws HttpException {
+        String header = request.header("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7) || header.length() == 7) {
+            throw new HttpException(401, "Falta el token de acceso");
+        }
+        String token = header.substring(7).trim();
+        if (!await(session.validate(token))) {
+            throw new HttpException(401, "Token no válido");
+        }
+        if (!ownsThisServer(token)) {
+            throw new HttpException(403, "Solo el propietario de este servidor puede subir ficheros");
+        }
+        return session.subject(token);
+    }
+
+    // Se compara con las claves vigentes en cada petición: si el propietario cierra sesión, se dejan de aceptar
+    private boolean ownsThisServer(String token) throws HttpException {
+        String key = AuthSession.fingerprint(token);
+        long now = System.currentTimeMillis();
+        OwnedKeys owned;
+        synchronized (ownedKeys) {
+            owned = ownedKeys.get(key);
+        }
+        if (owned == null || owned.until() <= now) {
+            List<String> keys = await(api.listServers(token)).stream()
+                    .map(ServerResponse::getStreamKey)
+                    .filter(Objects::nonNull)
+                    .toList();
+            owned = new OwnedKeys(keys, now + ownerCacheMillis);
+            synchronized (ownedKeys) {
+                ownedKeys.put(key, owned);
+            }
+        }
+        for (String streamKey : owned.streamKeys()) {
+            if (streamKeys.isValid(streamKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws HttpException {
+        try {
+            return future.get(VALIDATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpException(503, "Servidor deteniéndose");
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("No se pudo validar el token de subida: {}", e.toString());
+            throw new HttpException(503, "No se pudo validar el token");
+        }
+    }
+
+    private record OwnedKeys(List<String> streamKeys, long until) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.miapp.mediaserver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Subidas reanudables, con token Bearer del backend del propietario de este servidor:
+//   POST   /uploads?name=<ruta relativa>&size=<bytes>     crea la subida (o devuelve la pendiente propia con ese nombre)
+//   GET    /uploads/<id>                                  estado y trozos que faltan (404 si es de otro usuario)
+//   PUT    /uploads/<id>/chunks/<n>                       trozo n; X-Chunk-SHA256 opcional
+//   POST   /uploads/<id>/complete?sha256=<hash opcional>  verifica, deduplica y mueve a la biblioteca
+//   DELETE /uploads/<id>                                  cancela
+public class UploadHandler implements RouteHandler {
+
+    public static final String PATH = "/uploads";
+    private static final String CHUNK_HASH_HEADER = "X-Chunk-SHA256";
+
+    private final UploadStore store;
+    private final UploadAuthorizer authorizer;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public UploadHandler(UploadStore store, UploadAuthorizer authorizer) {
+        this.store = store;
+        this.authorizer = authorizer;
+    }
+
+    @Override
+    public void handle(MediaRequest request, MediaResponse response) throws IOException {
+        String path = request.getPath();
+        if (!path.equals(PATH) && !path.startsWith(PATH + "/")) {
+            throw new HttpException(404, "No encontrado");
+        }
+        // Si el cliente espera el 100 Continue y no se lo damos, no manda el cuerpo: la conexión no se reutiliza
+        if ("100-continue".equalsIgnoreCase(request.header("Expect"))) {
+            response.setKeepAlive(false);
+        }
+        String owner = authorizer.authorize(request);
+        String[] parts = path.substring(PATH.length()).split("/");
+        String method = request.getMethod();
+        if (parts.length <= 1) {
+            requireMethod(method, "POST", response);
+            create(request, response, owner);
+            return;
+        }
+        UploadStore.Session session = store.get(parts[1], owner);
+        if (session == null) {
+            throw new HttpException(404, "Subida no encontrada");
+        }
+        if (parts.length == 2) {
+            if ("DELETE".equals(method)) {
+                store.cancel(session);
+                response.setStatus(204);
+                response.sendHeaders(-1);
+                return;
+            }
+            requireMethod(method, "GET", response);
+            sendStatus(response, 200, session);
+        } else if (parts.length == 4 && parts[2].equals("chunks")) {
+            requireMethod(method, "PUT", response);
+            writeChunk(request, response, session, parts[3]);
+        } else if (parts.length == 3 && parts[2].equals("complete")) {
+            requireMethod(method, "POST", response);
+            complete(request, response, session);
+        } else {
+            throw new HttpException(404, "No encontrado");
+        }
+    }
+
+    private void create(MediaRequest request, MediaResponse response, String owner) throws IOException {
+        String name = request.queryParam("name");
+        String size = request.queryParam("size");
+        if (name == null || size == null) {
+            throw new HttpException(400, "Faltan los parámetros name y size");
+        }
+        UploadStore.Session session;
+        try {
+            session = store.create(name, Long.parseLong(size), owner);
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Parámetro size no válido");
+        }
+        sendStatus(response, session.getReceived() == 0 ? 201 : 200, session);
+    }
+
+    private void writeChunk(MediaRequest request, MediaResponse response, UploadStore.Session session,
+                            String chunk) throws IOException {
+        int index;
+        try {
+            index = Integer.parseInt(chunk);
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Número de trozo no válido");
+        }
+        byte[] expected = parseHash(request.header(CHUNK_HASH_HEADER), CHUNK_HASH_HEADER);
+        response.sendContinue();
+        // Si ya lo teníamos el cuerpo no se lee, así que la conexión no se puede reutilizar
+        boolean written = store.writeChunk(session, index, request.getBody(), expected);
+        response.setKeepAlive(written && request.isKeepAlive());
+        sendStatus(response, 200, session);
+    }
+
+    private void complete(MediaRequest request, MediaResponse response, UploadStore.Session session)
+            throws IOException {
+        byte[] expected = parseHash(request.queryParam("sha256"), "sha256");
+        UploadStore.Completion completion = store.complete(session, expected);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("path", completion.path());
+        body.put("url", MediaFileHandler.PREFIX + CatalogSearchHandler.encodePath(completion.path()));
+        body.put("sha256", completion.contentHash());
+        body.put("duplicate", completion.duplicate());
+        response.sendJson(completion.duplicate() ? 200 : 201, mapper.writeValueAsBytes(body));
+    }
+
+    private void sendStatus(MediaResponse response, int status, UploadStore.Session session) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", session.getId());
+        body.put("path", session.getRelativePath());
+        body.put("size", session.getSize());
+        body.put("chunkSize", session.getChunkSize());
+        body.put("chunks", session.getChunks());
+        body.put("received", session.getReceived());
+        body.put("missing", session.missingRanges());
+        response.setHeader("Cache-Control", "no-store");
+        response.sendJson(status, mapper.writeValueAsBytes(body));
+    }
+
+    private static void requireMethod(String method, String expected, MediaResponse response) throws HttpException {
+        if (!expected.equals(method)) {
+            response.setHeader("Allow", expected);
+            throw new HttpException(405, "Método no permitido");
+        }
+    }
+
+    private static byte[] parseHash(String hex, String name) throws HttpException {
+        if (hex == null) {
+            return null;
+        }
+        try {
+            byte[] hash = HexFormat.of().parseHex(hex.trim());
+            if (hash.length == 32) {
+                return hash;
+            }
+        } catch (IllegalArgumentException e) {
+            // Se responde igual que con una longitud incorrecta
+        }
+        throw new HttpException(400, name + " no es un SHA-256 válido");
+    }
+}
@@ -0,0 +1,572 @@
+package com.miapp.mediaserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Subidas reanudables a la biblioteca. Cada subida se parte en trozos de tamaño fijo que pueden llegar en
+// cualquier orden; se escriben en su posición de <raíz>/.uploads/<id>.part y su SHA-256 queda anotado en
+// <id>.session, así que tras un corte (o un reinicio) solo se reenvía lo que falta. El hash del contenido
+// es el SHA-256 de la lista de hashes de los trozos, y con él se detectan los ficheros repetidos.
+public class UploadStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadStore.class);
+    private static final int MAGIC = 0x4D555031; // "MUP1"
+    private static final int VERSION = 2;
+    private static final int HASH_BYTES = 32;
+    private static final int IO_BUFFER = 1024 * 1024;
+    private static final int MAX_CACHED_HASHES = 10_000;
+
+    private final MediaLibrary library;
+    private final Path stagingDir;
+    private final int chunkSize;
+    private final long maxBytes;
+    private final long expireMillis;
+    private final Supplier<Collection<MediaEntry>> libraryEntries;
+    private final ExecutorService hashers;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<HashKey, byte[]> contentHashes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<HashKey, byte[]> eldest) {
+            return size() > MAX_CACHED_HASHES;
+        }
+    };
+
+    public UploadStore(MediaLibrary library, Path stagingDir, int chunkSize, long maxBytes, long expireMillis,
+                       Supplier<Collection<MediaEntry>> libraryEntries, int hashThreads) {
+        this.library = library;
+        this.stagingDir = stagingDir;
+        this.chunkSize = chunkSize;
+        this.maxBytes = maxBytes;
+        this.expireMillis = expireMillis;
+        this.libraryEntries = libraryEntries;
+        this.hashers = Executors.newFixedThreadPool(hashThreads, runnable -> {
+            Thread thread = new Thread(runnable, "upload-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    // Devuelve null si la biblioteca no tiene ninguna raíz donde dejar las subidas
+    public static UploadStore fromConfig(ServerConfig config, MediaLibrary library,
+                                         Supplier<Collection<MediaEntry>> libraryEntries) {
+        if (library.getRoots().isEmpty()) {
+            return null;
+        }
+        return new UploadStore(library, library.getRoots().get(0).resolve(".uploads"),
+                config.getInt("uploads.chunkBytes", 8 * 1024 * 1024),
+                config.getLong("uploads.maxBytes", 256L * 1024 * 1024 * 1024),
+                config.getLong("uploads.expireHours", 24) * 3_600_000,
+                libraryEntries,
+                config.getInt("uploads.hashThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    // Una subida con la misma ruta y tamaño que otra a medias del mismo usuario la retoma en lugar de empezar de cero
+    public Session create(String relativePath, long size, String owner) throws IOException {
+        if (size <= 0) {
+            throw new HttpException(400, "Tamaño no válido");
+        }
+        if (size > maxBytes) {
+            throw new HttpException(413, "Fichero demasiado grande");
+        }
+        Path target = library.resolveTarget(relativePath);
+        if (target == null || MediaProbe.container(target) == null) {
+            throw new HttpException(400, "Ruta de destino no válida");
+        }
+        if (Files.exists(target)) {
+            throw new HttpException(409, "Ya existe un fichero con esa ruta");
+        }
+        String normalized = library.getRoots().get(0).relativize(target).toString().replace('\\', '/');
+        sweep();
+        synchronized (this) {
+            for (Session session : sessions.values()) {
+                if (session.relativePath.equals(normalized) && session.size == size && session.owner.equals(owner)) {
+                    return session;
+                }
+            }
+            Files.createDirectories(stagingDir);
+            if (Files.getFileStore(stagingDir).getUsableSpace() < size) {
+                throw new HttpException(507, "No hay espacio suficiente");
+            }
+            byte[] id = new byte[16];
+            random.nextBytes(id);
+            Session session = new Session(HexFormat.of().formatHex(id), owner, normalized, size, chunkSize);
+            save(session);
+            sessions.put(session.id, session);
+            logger.info("Subida {} iniciada: {} ({} bytes)", session.id, normalized, size);
+            return session;
+        }
+    }
+
+    // Las subidas de otro usuario no existen para quien pregunta; las de la versión 1 no tienen dueño
+    public Session get(String id, String owner) {
+        Session session = sessions.get(id);
+        return session == null || !(session.owner.isEmpty() || session.owner.equals(owner)) ? null : session;
+    }
+
+    // Escribe un trozo en su posición calculando su hash a la vez. Devuelve false si ya se tenía
+    // (reintento de un cliente que no recibió la respuesta); en ese caso el cuerpo no se lee.
+    public boolean writeChunk(Session session, int index, InputStream body, byte[] expectedHash) throws IOException {
+        if (index < 0 || index >= session.chunks) {
+            throw new HttpException(400, "Trozo fuera de rango");
+        }
+        if (!session.beginWrite(index)) {
+            return false;
+        }
+        boolean finished = false;
+        try (FileChannel channel = FileChannel.open(partFile(session), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            MessageDigest digest = sha256();
+            long length = session.chunkLength(index);
+            long base = (long) index * session.chunkSize;
+            byte[] buffer = new byte[64 * 1024];
+            long written = 0;
+            int read;
+            while ((read = body.read(buffer, 0, (int) Math.min(buffer.length, length - written + 1))) > 0) {
+                if (written + read > length) {
+                    throw new HttpException(413, "El trozo es más largo de lo esperado");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                while (data.hasRemaining()) {
+                    channel.write(data, base + written + data.position());
+                }
+                written += read;
+            }
+            if (written != length) {
+                throw new HttpException(400, "Trozo incompleto: " + written + " de " + length + " bytes");
+            }
+            byte[] hash = digest.digest();
+            if (expectedHash != null && !MessageDigest.isEqual(hash, expectedHash)) {
+                throw new HttpException(422, "El hash del trozo no coincide");
+            }
+            // Solo se da por recibido lo que ya está en disco
+            channel.force(false);
+            session.finishWrite(index, hash);
+            finished = true;
+        } finally {
+            if (!finished) {
+                session.abortWrite(index);
+            }
+        }
+        save(session);
+        return true;
+    }
+
+    // Comprueba el fichero completo releyéndolo en paralelo; los trozos que no coinciden se vuelven a pedir
+    public Completion complete(Session session, byte[] expectedContentHash) throws IOException {
+        session.beginCompletion();
+        try {
+            Path part = partFile(session);
+            byte[][] actual = hashChunks(part, session.size, session.chunkSize);
+            List<Integer> corrupt = session.verify(actual);
+            if (!corrupt.isEmpty()) {
+                save(session);
+                throw new HttpException(422, corrupt.size() + " trozos no coinciden y hay que reenviarlos");
+            }
+            byte[] contentHash = topHash(actual);
+            if (expectedContentHash != null && !MessageDigest.isEqual(contentHash, expectedContentHash)) {
+                throw new HttpException(422, "El hash del contenido no coincide");
+            }
+            String hex = HexFormat.of().formatHex(contentHash);
+            Path duplicate = findDuplicate(session.size, contentHash);
+            if (duplicate != null) {
+                discard(session);
+                logger.info("Subida {} descartada: mismo contenido que {}", session.id, duplicate);
+                return new Completion(relativize(duplicate), hex, true);
+            }
+            Path target = library.resolveTarget(session.relativePath);
+            if (target == null || Files.exists(target)) {
+                throw new HttpException(409, "Ya existe un fichero con esa ruta");
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, target);
+            }
+            synchronized (contentHashes) {
+                contentHashes.put(new HashKey(target, session.size, Files.getLastModifiedTime(target).toMillis()),
+                        contentHash);
+            }
+            sessions.remove(session.id);
+            Files.deleteIfExists(sessionFile(session));
+            logger.info("Subida {} completada: {}", session.id, session.relativePath);
+            return new Completion(session.relativePath, hex, false);
+        } finally {
+            session.endCompletion();
+        }
+    }
+
+    public void cancel(Session session) throws IOException {
+        discard(session);
+        logger.info("Subida {} cancelada", session.id);
+    }
+
+    public void stop() {
+        hashers.shutdownNow();
+    }
+
+    private void discard(Session session) throws IOException {
+        sessions.remove(session.id);
+        Files.deleteIfExists(partFile(session));
+        Files.deleteIfExists(sessionFile(session));
+    }
+
+    // Solo puede ser el mismo contenido un fichero de la biblioteca con el mismo tamaño exacto
+    private Path findDuplicate(long size, byte[] contentHash) throws IOException {
+        for (MediaEntry entry : libraryEntries.get()) {
+            if (entry.size() != size) {
+                continue;
+            }
+            HashKey key = new HashKey(entry.path(), entry.size(), entry.lastModified());
+            byte[] known;
+            synchronized (contentHashes) {
+                known = contentHashes.get(key);
+            }
+            if (known == null) {
+                try {
+                    known = topHash(hashChunks(entry.path(), size, chunkSize));
+                } catch (IOException e) {
+                    continue;
+                }
+                synchronized (contentHashes) {
+                    contentHashes.put(key, known);
+                }
+            }
+            if (MessageDigest.isEqual(known, contentHash)) {
+                return entry.path();
+            }
+        }
+        return null;
+    }
+
+    // Un hash por trozo, calculados a la vez en el pool; las lecturas posicionales comparten el canal
+    private byte[][] hashChunks(Path file, long size, int chunk) throws IOException {
+        int chunks = (int) ((size + chunk - 1) / chunk);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < size) {
+                throw new IOException("Fichero incompleto: " + file);
+            }
+            List<Future<byte[]>> futures = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = (long) i * chunk;
+                long length = Math.min(chunk, size - start);
+                futures.add(hashers.submit(() -> hashRange(channel, start, length)));
+            }
+            byte[][] hashes = new byte[chunks][];
+            for (int i = 0; i < chunks; i++) {
+                hashes[i] = futures.get(i).get();
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Cálculo de hashes interrumpido", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private static byte[] hashRange(FileChannel channel, long start, long length) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(IO_BUFFER, length));
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Fichero truncado durante la verificación");
+            }
+            digest.update(buffer.flip());
+            position += read;
+        }
+        return digest.digest();
+    }
+
+    private static byte[] topHash(byte[][] chunkHashes) {
+        MessageDigest digest = sha256();
+        for (byte[] hash : chunkHashes) {
+            digest.update(hash);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String relativize(Path file) {
+        for (Path root : library.getRoots()) {
+            if (file.startsWith(root)) {
+                return root.relativize(file).toString().replace('\\', '/');
+            }
+        }
+        return file.getFileName().toString();
+    }
+
+    private Path partFile(Session session) {
+        return stagingDir.resolve(session.id + ".part");
+    }
+
+    private Path sessionFile(Session session) {
+        return stagingDir.resolve(session.id + ".session");
+    }
+
+    // Las subidas abandonadas se borran pasado uploads.expireHours sin actividad
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            if (now - session.getLastActivity() > expireMillis && !session.isBusy()) {
+                try {
+                    discard(session);
+                    logger.info("Subida {} caducada", session.id);
+                } catch (IOException e) {
+                    logger.warn("No se pudo borrar la subida caducada {}", session.id, e);
+                }
+            }
+        }
+    }
+
+    private void load() {
+        if (!Files.isDirectory(stagingDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(stagingDir, "*.session")) {
+            for (Path file : stream) {
+                Session session = read(file);
+                if (session == null) {
+                    continue;
+                }
+                // Sin el .part no queda nada aprovechable
+                if (!Files.exists(partFile(session))) {
+                    session.resetReceived();
+                }
+                sessions.put(session.id, session);
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudieron cargar las subidas pendientes de {}", stagingDir, e);
+        }
+        if (!sessions.isEmpty()) {
+            logger.info("{} subidas pendientes de reanudar", sessions.size());
+        }
+        sweep();
+    }
+
+    private Session read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > VERSION) {
+                logger.warn("Subida con formato desconocido, se ignora: {}", file);
+                return null;
+            }
+            // Las de la versión 1 no tienen propietario: solo se pueden retomar por su id
+            String id = in.readUTF();
+            String owner = version >= 2 ? in.readUTF() : "";
+            Session session = new Session(id, owner, in.readUTF(), in.readLong(), in.readInt());
+            session.lastActivity = in.readLong();
+            int received = in.readInt();
+            for (int i = 0; i < received; i++) {
+                int index = in.readInt();
+                byte[] hash = new byte[HASH_BYTES];
+                in.readFully(hash);
+                session.received.set(index);
+                session.hashes[index] = hash;
+            }
+            return session;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("No se pudo leer la subida {}", file, e);
+            return null;
+        }
+    }
+
+    // Bajo el cerrojo de la sesión para que dos trozos que acaban a la vez no se pisen el fichero
+    private void save(Session session) throws IOException {
+        synchronized (session) {
+            Files.createDirectories(stagingDir);
+            Path file = sessionFile(session);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(session.id);
+                out.writeUTF(session.owner);
+                out.writeUTF(session.relativePath);
+                out.writeLong(session.size);
+                out.writeInt(session.chunkSize);
+                out.writeLong(session.lastActivity);
+                out.writeInt(session.received.cardinality());
+                for (int i = session.received.nextSetBit(0); i >= 0; i = session.received.nextSetBit(i + 1)) {
+                    out.writeInt(i);
+                    out.write(session.hashes[i]);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private record HashKey(Path path, long size, long lastModified) {
+    }
+
+    public record Completion(String path, String contentHash, boolean duplicate) {
+    }
+
+    public static final class Session {
+        private final String id;
+        private final String owner;
+        private final String relativePath;
+        private final long size;
+        private final int chunkSize;
+        private final int chunks;
+        private final BitSet received;
+        private final BitSet writing;
+        private final byte[][] hashes;
+        private long lastActivity = System.currentTimeMillis();
+        private boolean completing;
+
+        private Session(String id, String owner, String relativePath, long size, int chunkSize) {
+            this.id = id;
+            this.owner = owner;
+            this.relativePath = relativePath;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunks = (int) ((size + chunkSize - 1) / chunkSize);
+            this.received = new BitSet(chunks);
+            this.writing = new BitSet(chunks);
+            this.hashes = new byte[chunks][];
+        }
+
+        public String getId() { return id; }
+        public String getRelativePath() { return relativePath; }
+        public long getSize() { return size; }
+        public int getChunkSize() { return chunkSize; }
+        public int getChunks() { return chunks; }
+
+        public synchronized int getReceived() {
+            return received.cardinality();
+        }
+
+        public synchronized long getLastActivity() {
+            return lastActivity;
+        }
+
+        // Trozos que faltan como rangos [desde, hasta] para no listar uno a uno en subidas enormes
+        public synchronized List<int[]> missingRanges() {
+            List<int[]> ranges = new ArrayList<>();
+            for (int from = received.nextClearBit(0); from < chunks; ) {
+                int to = Math.min(chunks, received.nextSetBit(from) < 0 ? chunks : received.nextSetBit(from));
+                ranges.add(new int[]{from, to - 1});
+                from = received.nextClearBit(to);
+            }
+            return ranges;
+        }
+
+        long chunkLength(int index) {
+            return Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+
+        private synchronized boolean beginWrite(int index) throws HttpException {
+            if (completing) {
+                throw new HttpException(409, "La subida se está completando");
+            }
+            if (received.get(index)) {
+                return false;
+            }
+            if (writing.get(index)) {
+                throw new HttpException(409, "Ese trozo ya se está recibiendo");
+            }
+            writing.set(index);
+            lastActivity = System.currentTimeMillis();
+            return true;
+        }
+
+        private synchronized void finishWrite(int index, byte[] hash) {
+            writing.clear(index);
+            received.set(index);
+            hashes[index] = hash;
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private synchronized void abortWrite(int index) {
+            writing.clear(index);
+        }
+
+        private synchronized void beginCompletion() throws HttpException {
+            if (completing) {
+                throw new HttpException(409, "La subida ya se está completando");
+            }
+            int missing = chunks - received.cardinality();
+            if (missing > 0 || !writing.isEmpty()) {
+                throw new HttpException(409, "Faltan trozos por recibir: " + Math.max(missing, 1));
+            }
+            completing = true;
+        }
+
+        private synchronized void endCompletion() {
+            completing = false;
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private synchronized boolean isBusy() {
+            return completing || !writing.isEmpty();
+        }
+
+        private synchronized List<Integer> verify(byte[][] actual) {
+            List<Integer> corrupt = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                if (!MessageDigest.isEqual(actual[i], hashes[i])) {
+                    corrupt.add(i);
+                    received.clear(i);
+                    hashes[i] = null;
+                }
+            }
+            return corrupt;
+        }
+
+        private synchronized void resetReceived() {
+            received.clear();
+            Arrays.fill(hashes, null);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.miapp.mediaserver;
+
+import javafx.fxml.FXMLLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class Views {
+
+    private static final Logger logger = LoggerFactory.getLogger(Views.class);
+    private static final Map<String, FXMLLoader> preloaded = new ConcurrentHashMap<>();
+
+    private Views() {
+    }
+
+    // Se llama fuera del hilo de JavaFX: los nodos aún no pertenecen a ninguna escena
+    public static void preload(String... paths) {
+        for (String path : paths) {
+            try {
+                preloaded.putIfAbsent(path, parse(path));
+            } catch (IOException e) {
+                logger.warn("No se pudo precargar {}", path, e);
+            }
+        }
+    }
+
+    // Cada vista precargada se entrega una sola vez; después se vuelve a parsear bajo demanda
+    public static FXMLLoader load(String path) throws IOException {
+        FXMLLoader loader = preloaded.remove(path);
+        return loader != null ? loader : parse(path);
+    }
+
+    private static FXMLLoader parse(String path) throws IOException {
+        URL location = Views.class.getResource(path);
+        if (location == null) {
+            throw new IOException("No se pudo encontrar " + path);
+        }
+        FXMLLoader loader = new FXMLLoader(location);
+        loader.load();
+        return loader;
+    }
+}
@@ -0,0 +1,194 @@
+package com.miapp.mediaserver;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockCacheTest {
+
+    private static final int BLOCK = 16;
+
+    @TempDir
+    Path dir;
+
+    private SocketChannel server;
+    private SocketChannel client;
+
+    @BeforeEach
+    void connect() throws IOException {
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            client = SocketChannel.open(listener.getLocalAddress());
+            server = listener.accept();
+        }
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        server.close();
+        client.close();
+    }
+
+    // Claves que caen en el mismo hueco ideal, intercaladas con otras y dando la vuelta al final de la tabla
+    @Test
+    void longIntMapKeepsCollidingKeysReachableAfterRemovals() {
+        BlockCache.LongIntMap map = new BlockCache.LongIntMap(4);
+        int mask = 7;
+        List<Long> homeSeven = keysWithHome(7, mask, 3);
+        List<Long> homeZero = keysWithHome(0, mask, 2);
+        List<Long> all = new ArrayList<>();
+        all.addAll(homeSeven);
+        all.addAll(homeZero);
+        for (int i = 0; i < all.size(); i++) {
+            map.put(all.get(i), i);
+        }
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i, map.get(all.get(i)));
+        }
+
+        map.remove(homeSeven.get(0));
+        map.remove(homeZero.get(0));
+
+        assertEquals(-1, map.get(homeSeven.get(0)));
+        assertEquals(-1, map.get(homeZero.get(0)));
+        assertEquals(1, map.get(homeSeven.get(1)));
+        assertEquals(2, map.get(homeSeven.get(2)));
+        assertEquals(4, map.get(homeZero.get(1)));
+        map.put(homeSeven.get(1), 9);
+        assertEquals(9, map.get(homeSeven.get(1)));
+        map.remove(homeSeven.get(0));
+        assertEquals(4, map.get(homeZero.get(1)));
+    }
+
+    // Altas, bajas y consultas al azar contra un HashMap, con la tabla casi llena para forzar colisiones
+    @Test
+    void longIntMapMatchesHashMapUnderRandomChurn() {
+        int expected = 64;
+        BlockCache.LongIntMap map = new BlockCache.LongIntMap(expected);
+        Map<Long, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 200_000; step++) {
+            long key = random.nextInt(200);
+            if (reference.size() < expected && random.nextBoolean()) {
+                map.put(key, step);
+                reference.put(key, step);
+            } else {
+                map.remove(key);
+                reference.remove(key);
+            }
+            long probe = random.nextInt(200);
+            assertEquals(reference.getOrDefault(probe, -1), map.get(probe), "clave " + probe + " en el paso " + step);
+        }
+    }
+
+    // Cuenta hasta 15 por clave y, al completar la muestra, divide a la mitad para olvidar lo antiguo
+    @Test
+    void frequencySketchCountsSaturatesAndAges() {
+        BlockCache.FrequencySketch sketch = new BlockCache.FrequencySketch(16);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment(1);
+        }
+        assertEquals(5, sketch.frequency(1));
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(1);
+        }
+        assertEquals(15, sketch.frequency(1));
+
+        // La muestra es 10 × 16 incrementos que suben algún contador
+        for (long key = 1_000; key < 1_160; key++) {
+            sketch.increment(key);
+        }
+        assertTrue(sketch.frequency(1) <= 7, "frecuencia tras envejecer: " + sketch.frequency(1));
+    }
+
+    // Con la caché llena, un bloque pedido una vez se sirve de disco; pedido otra vez, desplaza a uno frío
+    @Test
+    void admitsOnlyBlocksRequestedMoreThanTheVictim() throws IOException {
+        byte[] content = new byte[8 * BLOCK];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.write(dir.resolve("video.mp4"), content);
+        BlockCache cache = new BlockCache(4 * BLOCK, BLOCK);
+        MediaResponse response = new MediaResponse(server, false, true);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int block = 0; block < 4; block++) {
+                sendBlock(cache, file, channel, response, content, block);
+            }
+            sendBlock(cache, file, channel, response, content, 0);
+            assertEquals(new Counts(1, 4, 0, 0), counts(cache));
+
+            sendBlock(cache, file, channel, response, content, 5);
+            assertEquals(new Counts(1, 5, 0, 1), counts(cache));
+
+            sendBlock(cache, file, channel, response, content, 5);
+            assertEquals(new Counts(1, 6, 1, 1), counts(cache));
+
+            sendBlock(cache, file, channel, response, content, 5);
+            sendBlock(cache, file, channel, response, content, 0);
+            assertEquals(new Counts(3, 6, 1, 1), counts(cache));
+
+            // Un rango que cruza bloques combina aciertos y lecturas de disco sin mezclar bytes
+            cache.send(file, content.length, 0, channel, BLOCK - 3, 2 * BLOCK + 6, response);
+            assertArrayEquals(Arrays.copyOfRange(content, BLOCK - 3, 3 * BLOCK + 3), receive(2 * BLOCK + 6));
+        }
+        assertEquals(4L * BLOCK, cache.getStats().usedBytes());
+    }
+
+    private void sendBlock(BlockCache cache, Path file, FileChannel channel, MediaResponse response, byte[] content,
+                           int block) throws IOException {
+        cache.send(file, content.length, 0, channel, (long) block * BLOCK, BLOCK, response);
+        assertArrayEquals(Arrays.copyOfRange(content, block * BLOCK, (block + 1) * BLOCK), receive(BLOCK));
+    }
+
+    private byte[] receive(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    private static Counts counts(BlockCache cache) {
+        BlockCache.Stats stats = cache.getStats();
+        return new Counts(stats.hits(), stats.misses(), stats.evictions(), stats.rejections());
+    }
+
+    private static List<Long> keysWithHome(int home, int mask, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; keys.size() < count; key++) {
+            if ((BlockCache.mix(key) & mask) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private record Counts(long hits, long misses, long evictions, long rejections) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.miapp.mediaserver;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSearchIndexTest {
+
+    private static final Path ROOT = Path.of("/biblioteca");
+
+    // "alpha" se queda sin mapa de bits (era corta al añadirse) y "beta" lo obtiene después: no hay vía densa
+    @Test
+    void mixesDenseAndSparseListsAddedIncrementally() {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        index.onEntryUpdated(entry("alpha/beta/ambos.mp4"));
+        for (int i = 0; i < 300; i++) {
+            index.onEntryUpdated(entry("alpha/clip" + i + ".mp4"));
+        }
+        for (int i = 0; i < 4000; i++) {
+            index.onEntryUpdated(entry("relleno/video" + i + ".mp4"));
+        }
+        for (int i = 0; i < 200; i++) {
+            index.onEntryUpdated(entry("beta/alpha" + i + ".mkv"));
+        }
+
+        CatalogSearchIndex.Page page = index.search("alpha beta", 0, 10);
+
+        assertEquals(1, page.total());
+        assertEquals("alpha/beta/ambos.mp4", page.items().get(0).relativePath());
+    }
+
+    // Un término que solo aparece en documentos borrados no debe impedir la búsqueda con tolerancia
+    @Test
+    void fallsBackToFuzzyWhenOnlyDeletedEntriesMatch() {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        MediaEntry removed = entry("fauna/tigers.mp4");
+        index.onEntryUpdated(entry("fauna/tiger.mp4"));
+        index.onEntryUpdated(removed);
+        index.onEntryRemoved(removed);
+
+        CatalogSearchIndex.Page page = index.search("tigers", 0, 10);
+
+        assertEquals(1, page.total());
+        assertEquals("fauna/tiger.mp4", page.items().get(0).relativePath());
+    }
+
+    // Un fichero que no para de cambiar no debe hacer crecer el índice sin límite
+    @Test
+    void compactsAfterRepeatedUpdatesOfTheSameEntry() {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        for (int i = 0; i < 10; i++) {
+            index.onEntryUpdated(entry("fijos/video" + i + ".mp4"));
+        }
+        MediaEntry growing = entry("directos/grabacion.mkv");
+        for (int i = 0; i < 5_000; i++) {
+            index.onEntryUpdated(growing);
+        }
+
+        assertEquals(11, index.size());
+        assertTrue(index.docCount() <= 11 + 1025, "documentos asignados: " + index.docCount());
+        CatalogSearchIndex.Page page = index.search("grabacion", 0, 10);
+        assertEquals(1, page.total());
+        assertEquals("directos/grabacion.mkv", page.items().get(0).relativePath());
+        assertEquals(10, index.search("fijos", 0, 20).total());
+    }
+
+    private static MediaEntry entry(String relativePath) {
+        String container = relativePath.substring(relativePath.lastIndexOf('.') + 1);
+        return new MediaEntry(ROOT.resolve(relativePath), relativePath, 1, 0, container, MediaMetadata.UNKNOWN);
+    }
+}
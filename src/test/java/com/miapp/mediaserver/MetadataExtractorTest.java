@@ -0,0 +1,220 @@
+package com.miapp.mediaserver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MetadataExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    // Duración de mvhd, códec y tamaño de la pista de vídeo y códec de la de audio
+    @Test
+    void readsMp4MovieAndTracks() throws IOException {
+        byte[] moov = box("moov", mvhd(1000, 5_000),
+                trak(1920, 1080, "vide", "avc1"),
+                trak(0, 0, "soun", "mp4a"));
+        Path file = write("video.mp4", box("ftyp", ascii("isom"), new byte[4]), box("mdat", new byte[64]), moov);
+
+        MediaMetadata metadata = MetadataExtractor.extract(file, "mp4");
+
+        assertEquals(new MediaMetadata(5_000, "avc1", "mp4a", 1920, 1080, null, null), metadata);
+    }
+
+    // Un moov cortado a medias (descarga incompleta) no se recorre
+    @Test
+    void ignoresTruncatedMp4() throws IOException {
+        byte[] moov = box("moov", mvhd(1000, 5_000), trak(640, 480, "vide", "avc1"));
+        byte[] whole = concat(box("ftyp", ascii("isom"), new byte[4]), moov);
+        Path file = write("cortado.mp4", Arrays.copyOf(whole, whole.length - 20));
+
+        assertEquals(MediaMetadata.UNKNOWN, MetadataExtractor.extract(file, "mp4"));
+    }
+
+    // Tamaños de caja imposibles dentro de moov: se devuelve lo leído hasta ahí, sin excepción
+    @Test
+    void stopsAtMalformedMp4Box() throws IOException {
+        byte[] broken = ByteBuffer.allocate(8).putInt(3).put(ascii("trak")).array();
+        Path file = write("roto.mp4", box("moov", mvhd(600, 1_200), broken));
+
+        MediaMetadata metadata = MetadataExtractor.extract(file, "mp4");
+
+        assertEquals(2_000, metadata.durationMillis());
+        assertNull(metadata.videoCodec());
+    }
+
+    // Info (escala, duración, título) y Tracks de un segmento de tamaño desconocido, como graba un directo
+    @Test
+    void readsMatroskaInfoAndTracks() throws IOException {
+        byte[] info = ebml(0x1549A966,
+                ebml(0x2AD7B1, uint(1_000_000)),
+                ebml(0x4489, ByteBuffer.allocate(8).putDouble(12_345.0).array()),
+                ebml(0x7BA9, "Concierto".getBytes(StandardCharsets.UTF_8)));
+        byte[] tracks = ebml(0x1654AE6B,
+                ebml(0xAE, ebml(0x83, uint(1)), ebml(0x86, ascii("V_VP9")),
+                        ebml(0xE0, ebml(0xB0, uint(1280)), ebml(0xBA, uint(720)))),
+                ebml(0xAE, ebml(0x83, uint(2)), ebml(0x86, ascii("A_OPUS"))));
+        byte[] segment = concat(id(0x18538067), new byte[]{0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF}, info, tracks, ebml(0x1F43B675, new byte[16]));
+        Path file = write("directo.mkv", ebml(0x1A45DFA3, ebml(0x4282, ascii("webm"))), segment);
+
+        MediaMetadata metadata = MetadataExtractor.extract(file, "matroska");
+
+        assertEquals(new MediaMetadata(12_345, "V_VP9", "A_OPUS", 1280, 720, "Concierto", null), metadata);
+    }
+
+    // Sin cabecera EBML, o con un identificador de longitud no válida, no hay nada que leer
+    @Test
+    void ignoresMalformedMatroska() throws IOException {
+        Path garbage = write("basura.mkv", new byte[]{0x00, 0x00, 0x12, 0x34});
+        Path wrongId = write("otro.mkv", ebml(0x1A45DFA3), new byte[]{0x01, 0x02, 0x03});
+
+        assertEquals(MediaMetadata.UNKNOWN, MetadataExtractor.extract(garbage, "matroska"));
+        assertEquals(MediaMetadata.UNKNOWN, MetadataExtractor.extract(wrongId, "matroska"));
+    }
+
+    // Un elemento que declara más bytes de los que hay se lee hasta donde llega el fichero
+    @Test
+    void toleratesTruncatedMatroskaInfo() throws IOException {
+        byte[] info = ebml(0x1549A966, ebml(0x2AD7B1, uint(1_000_000)),
+                ebml(0x7BA9, "Cortado".getBytes(StandardCharsets.UTF_8)));
+        byte[] segment = concat(id(0x18538067), size(info.length + 100), info);
+        byte[] whole = concat(ebml(0x1A45DFA3), segment);
+        Path file = write("cortado.mkv", Arrays.copyOf(whole, whole.length - 3));
+
+        MediaMetadata metadata = MetadataExtractor.extract(file, "matroska");
+
+        assertEquals(-1, metadata.durationMillis());
+        assertEquals("Cort", metadata.title());
+    }
+
+    // Etiquetas ID3v2.3 y duración estimada como CBR: 128 kbit/s y 16000 bytes de audio son un segundo
+    @Test
+    void readsMp3TagsAndCbrDuration() throws IOException {
+        byte[] frames = concat(id3Frame("TIT2", "Canción"), id3Frame("TPE1", "Grupo"));
+        byte[] audio = new byte[16_000];
+        audio[0] = (byte) 0xFF;
+        audio[1] = (byte) 0xFB;
+        audio[2] = (byte) 0x90;
+        Path file = write("tema.mp3", id3(frames), audio);
+
+        MediaMetadata metadata = MetadataExtractor.extract(file, "mp3");
+
+        assertEquals(new MediaMetadata(1_000, null, "mp3", 0, 0, "Canción", "Grupo"), metadata);
+    }
+
+    // Una etiqueta ID3 que dice ocupar más que el fichero no impide devolver el códec
+    @Test
+    void toleratesTruncatedId3Tag() throws IOException {
+        byte[] tag = id3(id3Frame("TIT2", "Perdido"));
+        ByteBuffer.wrap(tag).put(6, (byte) 0x7F);
+        Path file = write("cortado.mp3", Arrays.copyOf(tag, tag.length - 4));
+
+        MediaMetadata metadata = MetadataExtractor.extract(file, "mp3");
+
+        assertEquals("mp3", metadata.audioCodec());
+        assertEquals(-1, metadata.durationMillis());
+        assertNull(metadata.title());
+    }
+
+    @Test
+    void returnsUnknownForEmptyOrMissingFiles() throws IOException {
+        Path empty = write("vacio.mp4");
+
+        assertEquals(MediaMetadata.UNKNOWN, MetadataExtractor.extract(empty, "mp4"));
+        assertEquals(MediaMetadata.UNKNOWN, MetadataExtractor.extract(empty, "matroska"));
+        assertEquals(MediaMetadata.UNKNOWN, MetadataExtractor.extract(dir.resolve("no-existe.mp4"), "mp4"));
+        assertEquals(MediaMetadata.UNKNOWN, MetadataExtractor.extract(empty, null));
+    }
+
+    private Path write(String name, byte[]... parts) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, concat(parts));
+        return file;
+    }
+
+    // ---- MP4 ----
+
+    private static byte[] mvhd(int timescale, int duration) {
+        return box("mvhd", ByteBuffer.allocate(100).putInt(0).putInt(0).putInt(0)
+                .putInt(timescale).putInt(duration).array());
+    }
+
+    private static byte[] trak(int width, int height, String handler, String codec) {
+        ByteBuffer tkhd = ByteBuffer.allocate(84);
+        tkhd.putInt(76, width << 16).putInt(80, height << 16);
+        byte[] hdlr = box("hdlr", ByteBuffer.allocate(24).put(8, ascii(handler)).array());
+        byte[] stsd = box("stsd", ByteBuffer.allocate(16).putInt(4, 1).putInt(8, 8).put(12, ascii(codec)).array());
+        return box("trak", box("tkhd", tkhd.array()),
+                box("mdia", hdlr, box("minf", box("stbl", stsd))));
+    }
+
+    private static byte[] box(String type, byte[]... children) {
+        byte[] content = concat(children);
+        return ByteBuffer.allocate(8 + content.length).putInt(8 + content.length).put(ascii(type)).put(content).array();
+    }
+
+    // ---- Matroska ----
+
+    private static byte[] ebml(int id, byte[]... children) {
+        byte[] content = concat(children);
+        return concat(id(id), size(content.length), content);
+    }
+
+    private static byte[] id(int id) {
+        int length = 4 - Integer.numberOfLeadingZeros(id) / 8;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (id >>> (8 * (length - 1 - i)));
+        }
+        return bytes;
+    }
+
+    // Siempre con ocho bytes: marcador 0x01 y tamaño en los siete siguientes
+    private static byte[] size(long size) {
+        byte[] bytes = ByteBuffer.allocate(8).putLong(size).array();
+        bytes[0] = 0x01;
+        return bytes;
+    }
+
+    private static byte[] uint(long value) {
+        return ByteBuffer.allocate(4).putInt((int) value).array();
+    }
+
+    // ---- MP3 ----
+
+    private static byte[] id3(byte[] frames) {
+        int size = frames.length;
+        byte[] header = {'I', 'D', '3', 3, 0, 0, (byte) ((size >> 21) & 0x7F), (byte) ((size >> 14) & 0x7F),
+                (byte) ((size >> 7) & 0x7F), (byte) (size & 0x7F)};
+        return concat(header, frames);
+    }
+
+    private static byte[] id3Frame(String id, String text) {
+        byte[] value = text.getBytes(StandardCharsets.UTF_8);
+        return concat(ascii(id), ByteBuffer.allocate(4).putInt(value.length + 1).array(), new byte[]{0, 0, 3}, value);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
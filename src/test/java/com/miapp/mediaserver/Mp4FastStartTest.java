@@ -0,0 +1,192 @@
+package com.miapp.mediaserver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Mp4FastStartTest {
+
+    private static final byte[] FTYP = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), new byte[4]);
+    private static final byte[] PAYLOAD = "0123456789abcdefghij".getBytes(StandardCharsets.ISO_8859_1);
+
+    @TempDir
+    Path dir;
+
+    // stco apunta dentro de mdat: tras mover moov, cada desplazamiento sigue señalando los mismos bytes
+    @Test
+    void shiftsChunkOffsetsIntoMovedMdat() throws Exception {
+        byte[] mdat = box("mdat", PAYLOAD);
+        long chunk0 = FTYP.length + 8;
+        long chunk1 = chunk0 + 10;
+        byte[] moov = moov(stco(chunk0, chunk1));
+        Path file = write(FTYP, mdat, moov);
+
+        assertTrue(Mp4FastStart.needsFastStart(file));
+        assertTrue(new Mp4FastStart(0).process(file));
+
+        byte[] result = Files.readAllBytes(file);
+        assertEquals(FTYP.length + mdat.length + moov.length, result.length);
+        assertEquals("moov", typeAt(result, FTYP.length));
+        assertEquals("mdat", typeAt(result, FTYP.length + moov.length));
+        long[] offsets = offsets(result, FTYP.length, false);
+        assertEquals(chunk0 + moov.length, offsets[0]);
+        assertEquals(chunk1 + moov.length, offsets[1]);
+        assertArrayEquals(Arrays.copyOfRange(PAYLOAD, 0, 10), slice(result, offsets[0], 10));
+        assertArrayEquals(Arrays.copyOfRange(PAYLOAD, 10, 20), slice(result, offsets[1], 10));
+        assertFalse(Mp4FastStart.needsFastStart(file));
+    }
+
+    // Un moov final con tamaño 0 ("hasta el final") debe llevar su tamaño real al quedar delante de mdat
+    @Test
+    void writesRealSizeForTrailingMoovWithSizeZero() throws Exception {
+        byte[] mdat = box("mdat", PAYLOAD);
+        byte[] moov = moov(stco(FTYP.length + 8));
+        ByteBuffer.wrap(moov).putInt(0, 0);
+        Path file = write(FTYP, mdat, moov);
+
+        assertTrue(new Mp4FastStart(0).process(file));
+
+        byte[] result = Files.readAllBytes(file);
+        assertEquals(moov.length, ByteBuffer.wrap(result).getInt(FTYP.length));
+        int mdatAt = FTYP.length + moov.length;
+        assertEquals("mdat", typeAt(result, mdatAt));
+        assertEquals(mdat.length, ByteBuffer.wrap(result).getInt(mdatAt));
+        assertEquals(result.length, mdatAt + mdat.length);
+        assertArrayEquals(PAYLOAD, slice(result, offsets(result, FTYP.length, false)[0], PAYLOAD.length));
+    }
+
+    // Cabecera de 64 bits en moov y tabla co64: se respeta el tamaño largo y se desplazan las entradas
+    @Test
+    void handlesLargeSizeMoovWithCo64() throws Exception {
+        byte[] mdat = box("mdat", PAYLOAD);
+        long chunk = FTYP.length + 8 + 5;
+        byte[] moov = largeBox("moov", box("trak", box("mdia", box("minf", box("stbl", co64(chunk))))));
+        Path file = write(FTYP, mdat, moov);
+
+        assertTrue(new Mp4FastStart(0).process(file));
+
+        byte[] result = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        assertEquals(1, buffer.getInt(FTYP.length));
+        assertEquals(moov.length, buffer.getLong(FTYP.length + 8));
+        long offset = offsets(result, FTYP.length, true)[0];
+        assertEquals(chunk + moov.length, offset);
+        assertArrayEquals(Arrays.copyOfRange(PAYLOAD, 5, 20), slice(result, offset, 15));
+    }
+
+    // Si un desplazamiento de stco dejara de caber en 32 bits, el fichero no se toca
+    @Test
+    void refusesWhenStcoWouldOverflow() throws Exception {
+        long mdatSize = 0xFFFF_FFF0L;
+        byte[] moov = moov(stco(0xFFFF_FFF0L));
+        Path file = dir.resolve("grande.mp4");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(FTYP));
+            ByteBuffer mdatHeader = ByteBuffer.allocate(16);
+            mdatHeader.putInt(1).put("mdat".getBytes(StandardCharsets.ISO_8859_1)).putLong(mdatSize).flip();
+            channel.write(mdatHeader);
+            // Fichero disperso: el contenido de mdat no ocupa disco
+            channel.write(ByteBuffer.wrap(moov), FTYP.length + mdatSize);
+        }
+        long sizeBefore = Files.size(file);
+
+        assertTrue(Mp4FastStart.needsFastStart(file));
+        assertFalse(new Mp4FastStart(0).process(file));
+
+        assertEquals(sizeBefore, Files.size(file));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, FTYP.length + mdatSize);
+            assertEquals(moov.length, header.getInt(0));
+        }
+        try (var siblings = Files.list(dir)) {
+            assertEquals(1, siblings.count());
+        }
+    }
+
+    private Path write(byte[]... boxes) throws IOException {
+        Path file = dir.resolve("video.mp4");
+        Files.write(file, concat(boxes));
+        return file;
+    }
+
+    private static byte[] moov(byte[] table) {
+        return box("moov", box("trak", box("mdia", box("minf", box("stbl", table)))));
+    }
+
+    private static byte[] stco(long... offsets) {
+        ByteBuffer content = ByteBuffer.allocate(8 + offsets.length * 4);
+        content.putInt(0).putInt(offsets.length);
+        for (long offset : offsets) {
+            content.putInt((int) offset);
+        }
+        return box("stco", content.array());
+    }
+
+    private static byte[] co64(long... offsets) {
+        ByteBuffer content = ByteBuffer.allocate(8 + offsets.length * 8);
+        content.putInt(0).putInt(offsets.length);
+        for (long offset : offsets) {
+            content.putLong(offset);
+        }
+        return box("co64", content.array());
+    }
+
+    private static byte[] box(String type, byte[]... children) {
+        byte[] content = concat(children);
+        ByteBuffer box = ByteBuffer.allocate(8 + content.length);
+        box.putInt(8 + content.length).put(type.getBytes(StandardCharsets.ISO_8859_1)).put(content);
+        return box.array();
+    }
+
+    private static byte[] largeBox(String type, byte[]... children) {
+        byte[] content = concat(children);
+        ByteBuffer box = ByteBuffer.allocate(16 + content.length);
+        box.putInt(1).put(type.getBytes(StandardCharsets.ISO_8859_1)).putLong(16 + content.length).put(content);
+        return box.array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    // Entradas de la tabla de desplazamientos del moov que empieza en moovAt (un solo trak)
+    private static long[] offsets(byte[] file, int moovAt, boolean wide) {
+        ByteBuffer buffer = ByteBuffer.wrap(file);
+        int header = buffer.getInt(moovAt) == 1 ? 16 : 8;
+        int table = moovAt + header + 8 * 4;
+        assertEquals(wide ? "co64" : "stco", typeAt(file, table));
+        int count = buffer.getInt(table + 12);
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = wide ? buffer.getLong(table + 16 + i * 8) : buffer.getInt(table + 16 + i * 4) & 0xFFFFFFFFL;
+        }
+        return offsets;
+    }
+
+    private static String typeAt(byte[] file, int position) {
+        return new String(file, position + 4, 4, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] slice(byte[] file, long offset, int length) {
+        return Arrays.copyOfRange(file, (int) offset, (int) offset + length);
+    }
+}
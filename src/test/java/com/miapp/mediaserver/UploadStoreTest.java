@@ -0,0 +1,259 @@
+package com.miapp.mediaserver;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadStoreTest {
+
+    private static final int CHUNK = 4;
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.ISO_8859_1);
+    private static final String OWNER = "sub:ana";
+
+    @TempDir
+    Path root;
+
+    private final List<MediaEntry> libraryEntries = new ArrayList<>();
+    private final List<UploadStore> stores = new ArrayList<>();
+    private MediaLibrary library;
+
+    @BeforeEach
+    void setUp() {
+        library = new MediaLibrary(List.of(root));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(UploadStore::stop);
+    }
+
+    // Los trozos llegan en cualquier orden y el fichero final queda con los bytes en su sitio
+    @Test
+    void assemblesChunksReceivedOutOfOrder() throws IOException {
+        UploadStore store = newStore();
+        UploadStore.Session session = store.create("videos/clip.mp4", CONTENT.length, OWNER);
+        assertEquals(3, session.getChunks());
+
+        assertTrue(store.writeChunk(session, 2, chunk(2), null));
+        assertTrue(store.writeChunk(session, 0, chunk(0), null));
+        assertEquals(List.of(1), missing(session));
+        assertTrue(store.writeChunk(session, 1, chunk(1), sha256(chunk(1).readAllBytes())));
+
+        UploadStore.Completion completion = store.complete(session, null);
+
+        assertFalse(completion.duplicate());
+        assertEquals("videos/clip.mp4", completion.path());
+        assertArrayEquals(CONTENT, Files.readAllBytes(root.resolve("videos/clip.mp4")));
+        assertNull(store.get(session.getId(), OWNER));
+        try (var staged = Files.list(root.resolve(".uploads"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    // Un reintento de un trozo ya recibido no lee el cuerpo ni lo vuelve a escribir
+    @Test
+    void skipsChunkAlreadyReceived() throws IOException {
+        UploadStore store = newStore();
+        UploadStore.Session session = store.create("clip.mp4", CONTENT.length, OWNER);
+        assertTrue(store.writeChunk(session, 0, chunk(0), null));
+
+        InputStream unread = new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("No se debía leer el cuerpo");
+            }
+        };
+
+        assertFalse(store.writeChunk(session, 0, unread, null));
+        assertEquals(1, session.getReceived());
+    }
+
+    // Un trozo más largo o más corto de lo esperado se rechaza y se puede volver a mandar
+    @Test
+    void rejectsOversizeAndShortChunks() throws IOException {
+        UploadStore store = newStore();
+        UploadStore.Session session = store.create("clip.mp4", CONTENT.length, OWNER);
+
+        HttpException oversize = assertThrows(HttpException.class,
+                () -> store.writeChunk(session, 0, new ByteArrayInputStream(CONTENT), null));
+        assertEquals(413, oversize.getStatus());
+        HttpException shortChunk = assertThrows(HttpException.class,
+                () -> store.writeChunk(session, 0, new ByteArrayInputStream(CONTENT, 0, 2), null));
+        assertEquals(400, shortChunk.getStatus());
+        HttpException badHash = assertThrows(HttpException.class,
+                () -> store.writeChunk(session, 0, chunk(0), new byte[32]));
+        assertEquals(422, badHash.getStatus());
+        assertEquals(400, assertThrows(HttpException.class,
+                () -> store.writeChunk(session, 3, chunk(0), null)).getStatus());
+        assertEquals(0, session.getReceived());
+
+        assertTrue(store.writeChunk(session, 0, chunk(0), null));
+        // El último trozo es más corto: 2 bytes
+        assertTrue(store.writeChunk(session, 2, chunk(2), null));
+        assertEquals(List.of(1), missing(session));
+    }
+
+    // Tras un reinicio se retoma con los trozos ya recibidos y solo se mandan los que faltan
+    @Test
+    void resumesAfterRestart() throws IOException {
+        UploadStore first = newStore();
+        UploadStore.Session before = first.create("clip.mp4", CONTENT.length, OWNER);
+        first.writeChunk(before, 0, chunk(0), null);
+        first.writeChunk(before, 2, chunk(2), null);
+
+        UploadStore second = newStore();
+        UploadStore.Session after = second.get(before.getId(), OWNER);
+
+        assertNotNull(after);
+        assertEquals(2, after.getReceived());
+        assertEquals(List.of(1), missing(after));
+        assertSame(after, second.create("clip.mp4", CONTENT.length, OWNER));
+        second.writeChunk(after, 1, chunk(1), null);
+        assertFalse(second.complete(after, null).duplicate());
+        assertArrayEquals(CONTENT, Files.readAllBytes(root.resolve("clip.mp4")));
+    }
+
+    // Las sesiones de la versión 1 no guardaban propietario: se cargan y se pueden retomar por su id
+    @Test
+    void loadsVersionOneSessions() throws IOException {
+        Path staging = Files.createDirectories(root.resolve(".uploads"));
+        String id = "0123456789abcdef0123456789abcdef";
+        Files.write(staging.resolve(id + ".part"), CONTENT);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(staging.resolve(id + ".session")))) {
+            out.writeInt(0x4D555031);
+            out.writeInt(1);
+            out.writeUTF(id);
+            out.writeUTF("antiguo.mp4");
+            out.writeLong(CONTENT.length);
+            out.writeInt(CHUNK);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(3);
+            for (int i = 0; i < 3; i++) {
+                out.writeInt(i);
+                out.write(sha256(chunk(i).readAllBytes()));
+            }
+        }
+
+        UploadStore store = newStore();
+        UploadStore.Session session = store.get(id, OWNER);
+
+        assertNotNull(session);
+        assertEquals(3, session.getReceived());
+        assertEquals("antiguo.mp4", store.complete(session, null).path());
+        assertArrayEquals(CONTENT, Files.readAllBytes(root.resolve("antiguo.mp4")));
+    }
+
+    // Cada usuario solo ve y retoma sus propias subidas
+    @Test
+    void hidesSessionsOfOtherOwners() throws IOException {
+        UploadStore store = newStore();
+        UploadStore.Session mine = store.create("clip.mp4", CONTENT.length, OWNER);
+
+        assertNull(store.get(mine.getId(), "sub:otro"));
+        assertSame(mine, store.get(mine.getId(), OWNER));
+        assertNotEquals(mine.getId(), store.create("clip.mp4", CONTENT.length, "sub:otro").getId());
+    }
+
+    // Mismo tamaño y mismo contenido que un fichero de la biblioteca: se descarta la subida y se devuelve el existente
+    @Test
+    void detectsDuplicateInLibrary() throws IOException {
+        Path existing = Files.write(root.resolve("original.mp4"), CONTENT);
+        Files.write(root.resolve("parecido.mp4"), "9876543210".getBytes(StandardCharsets.ISO_8859_1));
+        libraryEntries.add(entry(root.resolve("parecido.mp4")));
+        libraryEntries.add(entry(existing));
+        UploadStore store = newStore();
+        UploadStore.Session session = store.create("copia.mp4", CONTENT.length, OWNER);
+        for (int i = 0; i < 3; i++) {
+            store.writeChunk(session, i, chunk(i), null);
+        }
+
+        UploadStore.Completion completion = store.complete(session, null);
+
+        assertTrue(completion.duplicate());
+        assertEquals("original.mp4", completion.path());
+        assertFalse(Files.exists(root.resolve("copia.mp4")));
+        assertFalse(Files.exists(root.resolve(".uploads").resolve(session.getId() + ".part")));
+    }
+
+    // Si un trozo se estropea en disco, completar falla, se vuelve a pedir solo ese y después se completa
+    @Test
+    void rerequestsCorruptChunk() throws IOException {
+        UploadStore store = newStore();
+        UploadStore.Session session = store.create("clip.mp4", CONTENT.length, OWNER);
+        for (int i = 0; i < 3; i++) {
+            store.writeChunk(session, i, chunk(i), null);
+        }
+        Path part = root.resolve(".uploads").resolve(session.getId() + ".part");
+        byte[] damaged = Files.readAllBytes(part);
+        damaged[5] ^= 0x20;
+        Files.write(part, damaged);
+
+        HttpException corrupt = assertThrows(HttpException.class, () -> store.complete(session, null));
+
+        assertEquals(422, corrupt.getStatus());
+        assertEquals(List.of(1), missing(session));
+        assertTrue(store.writeChunk(session, 1, chunk(1), null));
+        assertFalse(store.complete(session, null).duplicate());
+        assertArrayEquals(CONTENT, Files.readAllBytes(root.resolve("clip.mp4")));
+    }
+
+    private UploadStore newStore() {
+        Collection<MediaEntry> entries = libraryEntries;
+        UploadStore store = new UploadStore(library, root.resolve(".uploads"), CHUNK, 1024, 3_600_000,
+                () -> entries, 2);
+        stores.add(store);
+        return store;
+    }
+
+    private static InputStream chunk(int index) {
+        int from = index * CHUNK;
+        return new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, from, Math.min(CONTENT.length, from + CHUNK)));
+    }
+
+    private static List<Integer> missing(UploadStore.Session session) {
+        List<Integer> chunks = new ArrayList<>();
+        for (int[] range : session.missingRanges()) {
+            for (int i = range[0]; i <= range[1]; i++) {
+                chunks.add(i);
+            }
+        }
+        return chunks;
+    }
+
+    private MediaEntry entry(Path file) throws IOException {
+        return new MediaEntry(file, root.relativize(file).toString(), Files.size(file),
+                Files.getLastModifiedTime(file).toMillis(), "mp4", MediaMetadata.UNKNOWN);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}